@@ -0,0 +1,401 @@
+/*
+ * Copyright 2026 Mikhail Khodonov.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.homedns.mkh.util;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+
+/**
+ * Lookup table based hex encoder/decoder. All methods work on caller supplied
+ * targets, the main loops are unrolled by 8 bytes so the JIT can keep them
+ * branch free.
+ *
+ */
+public final class HexCodec {
+	private static final char[] DIGITS = "0123456789abcdef".toCharArray( );
+	private static final int STEP = 8;
+	/**
+	 * Chars per UTF-8 chunk, the chunk buffer is small enough for the JIT to keep it off the heap
+	 */
+	private static final int UTF8_CHUNK = 21;
+
+	/**
+	 * Two hex chars per byte value packed as (high << 16) | low
+	 */
+	private static final int[] ENCODE = new int[ 256 ];
+	/**
+	 * Nibble value per ascii char, -1 for non hex chars
+	 */
+	private static final byte[] DECODE = new byte[ 128 ];
+	static {
+		for( int i = 0; i < 256; i++ ) {
+			ENCODE[ i ] = ( DIGITS[ i >>> 4 ] << 16 ) | DIGITS[ i & 0x0F ];
+		}
+		for( int i = 0; i < DECODE.length; i++ ) {
+			DECODE[ i ] = -1;
+		}
+		for( int i = 0; i < 10; i++ ) {
+			DECODE[ '0' + i ] = ( byte )i;
+		}
+		for( int i = 0; i < 6; i++ ) {
+			DECODE[ 'a' + i ] = ( byte )( 10 + i );
+			DECODE[ 'A' + i ] = ( byte )( 10 + i );
+		}
+	}
+
+	private HexCodec( ) {
+	}
+
+	/**
+	 * Encodes specified bytes region into the target char array
+	 *
+	 * @param src the source bytes
+	 * @param iSrcOffset the source offset
+	 * @param iLength the number of bytes to encode
+	 * @param dst the target char array, must have room for 2 * iLength chars
+	 * @param iDstOffset the target offset
+	 *
+	 * @return the number of chars written
+	 */
+	public static int encode( byte[] src, int iSrcOffset, int iLength, char[] dst, int iDstOffset ) {
+		checkRange( src.length, iSrcOffset, iLength );
+		checkRange( dst.length, iDstOffset, iLength << 1 );
+		int iSrc = iSrcOffset;
+		int iDst = iDstOffset;
+		int iEnd = iSrcOffset + iLength;
+		int iWideEnd = iEnd - ( iLength % STEP );
+		while( iSrc < iWideEnd ) {
+			for( int i = 0; i < STEP; i++ ) {
+				int iPair = ENCODE[ src[ iSrc + i ] & 0xFF ];
+				dst[ iDst + ( i << 1 ) ] = ( char )( iPair >>> 16 );
+				dst[ iDst + ( i << 1 ) + 1 ] = ( char )iPair;
+			}
+			iSrc += STEP;
+			iDst += STEP << 1;
+		}
+		while( iSrc < iEnd ) {
+			int iPair = ENCODE[ src[ iSrc++ ] & 0xFF ];
+			dst[ iDst++ ] = ( char )( iPair >>> 16 );
+			dst[ iDst++ ] = ( char )iPair;
+		}
+		return( iLength << 1 );
+	}
+
+	/**
+	 * Encodes specified bytes into the target char array
+	 *
+	 * @param src the source bytes
+	 * @param dst the target char array, must have room for 2 * src.length chars
+	 *
+	 * @return the number of chars written
+	 */
+	public static int encode( byte[] src, char[] dst ) {
+		return( encode( src, 0, src.length, dst, 0 ) );
+	}
+
+	/**
+	 * Encodes remaining bytes of the source buffer as ascii hex bytes into the target buffer.
+	 * Both buffers positions are advanced.
+	 *
+	 * @param src the source buffer
+	 * @param dst the target buffer, must have room for 2 * src.remaining( ) bytes
+	 *
+	 * @return the number of bytes written
+	 */
+	public static int encode( ByteBuffer src, ByteBuffer dst ) {
+		int iLength = src.remaining( );
+		if( dst.remaining( ) < iLength << 1 ) {
+			throw new IndexOutOfBoundsException( "Target buffer is too small." );
+		}
+		if( src.hasArray( ) && dst.hasArray( ) ) {
+			byte[] in = src.array( );
+			byte[] out = dst.array( );
+			int iSrc = src.arrayOffset( ) + src.position( );
+			int iDst = dst.arrayOffset( ) + dst.position( );
+			for( int i = 0; i < iLength; i++ ) {
+				int iPair = ENCODE[ in[ iSrc + i ] & 0xFF ];
+				out[ iDst++ ] = ( byte )( iPair >>> 16 );
+				out[ iDst++ ] = ( byte )iPair;
+			}
+			src.position( src.position( ) + iLength );
+			dst.position( dst.position( ) + ( iLength << 1 ) );
+		} else {
+			while( src.remaining( ) >= STEP ) {
+				long lWord = src.getLong( );
+				if( src.order( ) != ByteOrder.BIG_ENDIAN ) {
+					lWord = Long.reverseBytes( lWord );
+				}
+				for( int iShift = 56; iShift >= 0; iShift -= 8 ) {
+					int iPair = ENCODE[ ( int )( lWord >>> iShift ) & 0xFF ];
+					dst.put( ( byte )( iPair >>> 16 ) );
+					dst.put( ( byte )iPair );
+				}
+			}
+			while( src.hasRemaining( ) ) {
+				int iPair = ENCODE[ src.get( ) & 0xFF ];
+				dst.put( ( byte )( iPair >>> 16 ) );
+				dst.put( ( byte )iPair );
+			}
+		}
+		return( iLength << 1 );
+	}
+
+	/**
+	 * Encodes remaining bytes of the source buffer as hex chars into the target buffer.
+	 * Both buffers positions are advanced.
+	 *
+	 * @param src the source buffer
+	 * @param dst the target buffer, must have room for 2 * src.remaining( ) chars
+	 *
+	 * @return the number of chars written
+	 */
+	public static int encode( ByteBuffer src, CharBuffer dst ) {
+		int iLength = src.remaining( );
+		if( dst.remaining( ) < iLength << 1 ) {
+			throw new IndexOutOfBoundsException( "Target buffer is too small." );
+		}
+		if( src.hasArray( ) && dst.hasArray( ) ) {
+			int iWritten = encode(
+				src.array( ), src.arrayOffset( ) + src.position( ), iLength, dst.array( ), dst.arrayOffset( ) + dst.position( )
+			);
+			src.position( src.position( ) + iLength );
+			dst.position( dst.position( ) + iWritten );
+		} else {
+			while( src.hasRemaining( ) ) {
+				int iPair = ENCODE[ src.get( ) & 0xFF ];
+				dst.put( ( char )( iPair >>> 16 ) );
+				dst.put( ( char )iPair );
+			}
+		}
+		return( iLength << 1 );
+	}
+
+	/**
+	 * Encodes specified bytes to the hex string
+	 *
+	 * @param ab the bytes to encode
+	 *
+	 * @return the lower case hex string
+	 */
+	public static String encode( byte[] ab ) {
+		return( encode( ab, 0, ab.length ) );
+	}
+
+	/**
+	 * Encodes specified bytes region to the hex string
+	 *
+	 * @param ab the bytes to encode
+	 * @param iOffset the region offset
+	 * @param iLength the region length
+	 *
+	 * @return the lower case hex string
+	 */
+	public static String encode( byte[] ab, int iOffset, int iLength ) {
+		char[] ac = new char[ iLength << 1 ];
+		encode( ab, iOffset, iLength, ac, 0 );
+		return( new String( ac ) );
+	}
+
+	/**
+	 * Encodes specified char sequence as UTF-8 bytes to the hex string, no byte array of the whole input is created.
+	 * Unpaired surrogates are encoded as '?' like {@link String#getBytes(java.nio.charset.Charset)} does.
+	 *
+	 * @param s the char sequence to encode
+	 *
+	 * @return the lower case hex string
+	 */
+	public static String encodeUtf8( CharSequence s ) {
+		char[] ac = new char[ utf8Length( s ) << 1 ];
+		encodeUtf8( s, ac, 0 );
+		return( new String( ac ) );
+	}
+
+	/**
+	 * Encodes specified char sequence as UTF-8 bytes to the hex chars into the target array
+	 *
+	 * @param s the char sequence to encode
+	 * @param dst the target array, must have room for 2 * {@link #utf8Length(CharSequence)} chars
+	 * @param iDstOffset the target offset
+	 *
+	 * @return the number of chars written
+	 */
+	public static int encodeUtf8( CharSequence s, char[] dst, int iDstOffset ) {
+		byte[] chunk = new byte[ UTF8_CHUNK * Utf8.MAX_BYTES_PER_CHAR ];
+		int iDst = iDstOffset;
+		int iLength = s.length( );
+		int i = 0;
+		while( i < iLength ) {
+			int iTo = Utf8.chunkEnd( s, i, UTF8_CHUNK );
+			iDst += encode( chunk, 0, Utf8.encode( s, i, iTo, chunk, 0 ), dst, iDst );
+			i = iTo;
+		}
+		return( iDst - iDstOffset );
+	}
+
+	/**
+	 * Returns number of bytes specified char sequence takes in UTF-8 encoding
+	 *
+	 * @param s the char sequence
+	 *
+	 * @return the UTF-8 length
+	 *
+	 * @see Utf8#length(CharSequence)
+	 */
+	public static int utf8Length( CharSequence s ) {
+		return( Utf8.length( s ) );
+	}
+
+	/**
+	 * Decodes specified hex chars region into the target byte array
+	 *
+	 * @param src the source hex chars
+	 * @param iSrcOffset the source offset
+	 * @param iLength the number of chars to decode, must be even
+	 * @param dst the target array, must have room for iLength / 2 bytes
+	 * @param iDstOffset the target offset
+	 *
+	 * @return the number of bytes written
+	 *
+	 * @throws IllegalArgumentException if source contains non hex chars or has odd length
+	 */
+	public static int decode( CharSequence src, int iSrcOffset, int iLength, byte[] dst, int iDstOffset ) {
+		if( ( iLength & 1 ) != 0 ) {
+			throw new IllegalArgumentException( "Invalid Hex format." );
+		}
+		checkRange( src.length( ), iSrcOffset, iLength );
+		int iBytes = iLength >> 1;
+		checkRange( dst.length, iDstOffset, iBytes );
+		int iSrc = iSrcOffset;
+		int iDst = iDstOffset;
+		int iEnd = iDstOffset + iBytes;
+		int iWideEnd = iEnd - ( iBytes % STEP );
+		// invalid chars give negative nibbles, they are or-ed into the flag and checked once per step
+		int iInvalid = 0;
+		while( iDst < iWideEnd ) {
+			for( int i = 0; i < STEP; i++ ) {
+				int iHi = nibble( src.charAt( iSrc++ ) );
+				int iLo = nibble( src.charAt( iSrc++ ) );
+				iInvalid |= iHi | iLo;
+				dst[ iDst + i ] = ( byte )( ( iHi << 4 ) | iLo );
+			}
+			if( iInvalid < 0 ) {
+				throw new IllegalArgumentException( "Invalid Hex format." );
+			}
+			iDst += STEP;
+		}
+		while( iDst < iEnd ) {
+			int iHi = nibble( src.charAt( iSrc++ ) );
+			int iLo = nibble( src.charAt( iSrc++ ) );
+			iInvalid |= iHi | iLo;
+			dst[ iDst++ ] = ( byte )( ( iHi << 4 ) | iLo );
+		}
+		if( iInvalid < 0 ) {
+			throw new IllegalArgumentException( "Invalid Hex format." );
+		}
+		return( iBytes );
+	}
+
+	/**
+	 * Decodes specified hex chars into the target byte array
+	 *
+	 * @param src the source hex chars
+	 * @param dst the target array, must have room for src.length( ) / 2 bytes
+	 *
+	 * @return the number of bytes written
+	 */
+	public static int decode( CharSequence src, byte[] dst ) {
+		return( decode( src, 0, src.length( ), dst, 0 ) );
+	}
+
+	/**
+	 * Decodes remaining hex chars of the source buffer into the target buffer.
+	 * Both buffers positions are advanced.
+	 *
+	 * @param src the source hex chars
+	 * @param dst the target buffer, must have room for src.remaining( ) / 2 bytes
+	 *
+	 * @return the number of bytes written
+	 */
+	public static int decode( CharBuffer src, ByteBuffer dst ) {
+		int iLength = src.remaining( );
+		if( ( iLength & 1 ) != 0 ) {
+			throw new IllegalArgumentException( "Invalid Hex format." );
+		}
+		int iBytes = iLength >> 1;
+		if( dst.remaining( ) < iBytes ) {
+			throw new IndexOutOfBoundsException( "Target buffer is too small." );
+		}
+		if( dst.hasArray( ) ) {
+			decode( src, 0, iLength, dst.array( ), dst.arrayOffset( ) + dst.position( ) );
+			dst.position( dst.position( ) + iBytes );
+		} else {
+			int iInvalid = 0;
+			for( int i = 0; i < iLength; i += 2 ) {
+				int iHi = nibble( src.charAt( i ) );
+				int iLo = nibble( src.charAt( i + 1 ) );
+				iInvalid |= iHi | iLo;
+				dst.put( ( byte )( ( iHi << 4 ) | iLo ) );
+			}
+			if( iInvalid < 0 ) {
+				throw new IllegalArgumentException( "Invalid Hex format." );
+			}
+		}
+		src.position( src.position( ) + iLength );
+		return( iBytes );
+	}
+
+	/**
+	 * Decodes specified hex chars to the new byte array
+	 *
+	 * @param src the hex chars
+	 *
+	 * @return the byte array
+	 */
+	public static byte[] decode( CharSequence src ) {
+		if( ( src.length( ) & 1 ) != 0 ) {
+			throw new IllegalArgumentException( "Invalid Hex format." );
+		}
+		byte[] ab = new byte[ src.length( ) >> 1 ];
+		decode( src, 0, src.length( ), ab, 0 );
+		return( ab );
+	}
+
+	/**
+	 * Returns nibble value of the specified hex char or -1
+	 *
+	 * @param c the hex char
+	 *
+	 * @return the nibble value
+	 */
+	private static int nibble( char c ) {
+		return( c < 128 ? DECODE[ c ] : -1 );
+	}
+
+	/**
+	 * Checks that specified region fits in the array
+	 *
+	 * @param iArrayLength the array length
+	 * @param iOffset the region offset
+	 * @param iLength the region length
+	 */
+	private static void checkRange( int iArrayLength, int iOffset, int iLength ) {
+		if( iOffset < 0 || iLength < 0 || iOffset > iArrayLength - iLength ) {
+			throw new IndexOutOfBoundsException( "offset " + iOffset + ", length " + iLength + ", size " + iArrayLength );
+		}
+	}
+}
@@ -0,0 +1,414 @@
+/*
+ * Copyright 2026 Mikhail Khodonov.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.homedns.mkh.util;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+import org.apache.log4j.Logger;
+
+/**
+ * Layered configuration view over the {@link Parameters}. Layers in the
+ * precedence order from the lowest: defaults, parameters file, environment,
+ * system properties, runtime overrides. Environment variable and system
+ * property override the key known to the lower layers, the variable name is
+ * the prefix plus the upper case key with non alphanumeric chars replaced by
+ * '_', e.g. APP_DB_URL for the key db.url, the system property name is the
+ * prefix plus the key. Placeholders ${name} and ${name:default} are resolved
+ * once when the snapshot is built, against the merged keys, then system
+ * properties, then environment. Keys compiled with {@link #compile(String)}
+ * are read from the flat array by index.
+ *
+ */
+public class LayeredParameters {
+	private static final Logger LOG = Logger.getLogger( LayeredParameters.class );
+	private static final int INT = 0;
+	private static final int LONG = 1;
+	private static final int BOOLEAN = 2;
+	private static final int DURATION = 3;
+	private static final Object ABSENT = new Object( );
+
+	private final Map< String, String > defaults;
+	private final Parameters parameters;
+	private final String sEnvPrefix;
+	private final String sPropertyPrefix;
+	private final Map< String, String > overrides = new ConcurrentHashMap< >( );
+	private final List< String > compiled = new ArrayList< >( );
+	private final Map< String, Key > keys = new HashMap< >( );
+	private final List< Parameters.ChangeListener > listeners = new CopyOnWriteArrayList< >( );
+	private volatile View view;
+
+	/**
+	 * Compiled key
+	 */
+	public static class Key {
+		private final String sName;
+		private final int iIndex;
+
+		private Key( String sName, int iIndex ) {
+			this.sName = sName;
+			this.iIndex = iIndex;
+		}
+
+		/**
+		 * Returns key name
+		 *
+		 * @return the key name
+		 */
+		public String getName( ) {
+			return( sName );
+		}
+	}
+
+	/**
+	 * @param defaults the default values
+	 * @param parameters the file parameters, may be null
+	 * @param sPrefix the prefix of the environment variables and system properties, e.g. "app", may be empty
+	 */
+	public LayeredParameters( Map< String, String > defaults, Parameters parameters, String sPrefix ) {
+		this.defaults = new HashMap< >( defaults );
+		this.parameters = parameters;
+		sEnvPrefix = sPrefix.isEmpty( ) ? "" : toEnvName( sPrefix ) + "_";
+		sPropertyPrefix = sPrefix.isEmpty( ) ? "" : sPrefix + ".";
+		if( parameters != null ) {
+			parameters.addListener( ( changed, snapshot ) -> refresh( ) );
+		}
+		refresh( );
+	}
+
+	/**
+	 * Compiles key for the array indexed lookup
+	 *
+	 * @param sName the key name
+	 *
+	 * @return the compiled key
+	 */
+	public Key compile( String sName ) {
+		Key key;
+		synchronized( this ) {
+			key = keys.get( sName );
+			if( key != null ) {
+				return( key );
+			}
+			key = new Key( sName, compiled.size( ) );
+			compiled.add( sName );
+			keys.put( sName, key );
+		}
+		refresh( );
+		return( key );
+	}
+
+	/**
+	 * Returns current snapshot of the resolved values
+	 *
+	 * @return the snapshot
+	 */
+	public Parameters.Snapshot getSnapshot( ) {
+		return( view.snapshot );
+	}
+
+	/**
+	 * Returns resolved value
+	 *
+	 * @param sName the key name
+	 *
+	 * @return the value or null
+	 */
+	public String get( String sName ) {
+		return( view.snapshot.get( sName ) );
+	}
+
+	/**
+	 * Returns resolved value
+	 *
+	 * @param key the compiled key
+	 *
+	 * @return the value or null
+	 */
+	public String get( Key key ) {
+		View v = view;
+		return( key.iIndex < v.values.length ? v.values[ key.iIndex ] : v.snapshot.get( key.sName ) );
+	}
+
+	/**
+	 * Returns resolved value
+	 *
+	 * @param key the compiled key
+	 * @param sDefault the default value
+	 *
+	 * @return the value or default value if there is no such key
+	 */
+	public String get( Key key, String sDefault ) {
+		String sValue = get( key );
+		return( sValue == null ? sDefault : sValue );
+	}
+
+	/**
+	 * @see Parameters.Snapshot#getInt(String, int)
+	 */
+	public int getInt( Key key, int iDefault ) {
+		Object value = getParsed( key, INT, s -> Integer.valueOf( s.trim( ) ) );
+		return( value == ABSENT ? iDefault : ( Integer )value );
+	}
+
+	/**
+	 * @see Parameters.Snapshot#getLong(String, long)
+	 */
+	public long getLong( Key key, long lDefault ) {
+		Object value = getParsed( key, LONG, s -> Long.valueOf( s.trim( ) ) );
+		return( value == ABSENT ? lDefault : ( Long )value );
+	}
+
+	/**
+	 * @see Parameters.Snapshot#getBoolean(String, boolean)
+	 */
+	public boolean getBoolean( Key key, boolean bDefault ) {
+		Object value = getParsed( key, BOOLEAN, s -> Boolean.valueOf( s.trim( ) ) );
+		return( value == ABSENT ? bDefault : ( Boolean )value );
+	}
+
+	/**
+	 * @see Parameters.Snapshot#getDuration(String, Duration)
+	 */
+	public Duration getDuration( Key key, Duration defaultValue ) {
+		View v = view;
+		if( key.iIndex >= v.values.length ) {
+			return( v.snapshot.getDuration( key.sName, defaultValue ) );
+		}
+		Object value = v.parsed[ DURATION ][ key.iIndex ];
+		if( value == null ) {
+			Duration duration = v.snapshot.getDuration( key.sName, null );
+			value = duration == null ? ABSENT : duration;
+			v.parsed[ DURATION ][ key.iIndex ] = value;
+		}
+		return( value == ABSENT ? defaultValue : ( Duration )value );
+	}
+
+	/**
+	 * Sets runtime override
+	 *
+	 * @param sName the key name
+	 * @param sValue the value, null removes the override
+	 */
+	public void override( String sName, String sValue ) {
+		if( sValue == null ) {
+			overrides.remove( sName );
+		} else {
+			overrides.put( sName, sValue );
+		}
+		refresh( );
+	}
+
+	/**
+	 * Adds change listener, it gets the keys whose resolved values are changed
+	 *
+	 * @param listener the listener
+	 */
+	public void addListener( Parameters.ChangeListener listener ) {
+		listeners.add( listener );
+	}
+
+	/**
+	 * Removes change listener
+	 *
+	 * @param listener the listener
+	 */
+	public void removeListener( Parameters.ChangeListener listener ) {
+		listeners.remove( listener );
+	}
+
+	/**
+	 * Rebuilds snapshot, call it after environment or system properties are changed
+	 */
+	public synchronized void refresh( ) {
+		Map< String, String > merged = new HashMap< >( defaults );
+		if( parameters != null ) {
+			merged.putAll( parameters.getSnapshot( ).getValues( ) );
+		}
+		Map< String, String > env = System.getenv( );
+		for( String sName : new ArrayList< >( merged.keySet( ) ) ) {
+			String sValue = env.get( sEnvPrefix + toEnvName( sName ) );
+			if( sValue != null ) {
+				merged.put( sName, sValue );
+			}
+			sValue = System.getProperty( sPropertyPrefix + sName );
+			if( sValue != null ) {
+				merged.put( sName, sValue );
+			}
+		}
+		merged.putAll( overrides );
+		Map< String, String > resolved = new HashMap< >( );
+		for( String sName : merged.keySet( ) ) {
+			resolved.put( sName, resolve( sName, merged, resolved, new HashSet< >( ) ) );
+		}
+		String[] values = new String[ compiled.size( ) ];
+		for( int i = 0; i < values.length; i++ ) {
+			values[ i ] = resolved.get( compiled.get( i ) );
+		}
+		View old = view;
+		View current = new View( new Parameters.Snapshot( resolved ), values );
+		view = current;
+		if( old == null ) {
+			return;
+		}
+		Set< String > changed = new HashSet< >( );
+		for( Map.Entry< String, String > entry : resolved.entrySet( ) ) {
+			if( !entry.getValue( ).equals( old.snapshot.get( entry.getKey( ) ) ) ) {
+				changed.add( entry.getKey( ) );
+			}
+		}
+		for( String sName : old.snapshot.getValues( ).keySet( ) ) {
+			if( !resolved.containsKey( sName ) ) {
+				changed.add( sName );
+			}
+		}
+		if( changed.isEmpty( ) ) {
+			return;
+		}
+		Set< String > changedKeys = Collections.unmodifiableSet( changed );
+		for( Parameters.ChangeListener listener : listeners ) {
+			try {
+				listener.onChange( changedKeys, current.snapshot );
+			}
+			catch( Exception e ) {
+				LOG.error( e.getMessage( ), e );
+			}
+		}
+	}
+
+	/**
+	 * Returns cached parsed value of the compiled key
+	 *
+	 * @param key the key
+	 * @param iType the value type
+	 * @param parser the value parser
+	 *
+	 * @return the parsed value or {@link #ABSENT}
+	 */
+	private Object getParsed( Key key, int iType, Function< String, Object > parser ) {
+		View v = view;
+		String sValue;
+		if( key.iIndex < v.values.length ) {
+			Object value = v.parsed[ iType ][ key.iIndex ];
+			if( value != null ) {
+				return( value );
+			}
+			sValue = v.values[ key.iIndex ];
+			value = sValue == null ? ABSENT : parser.apply( sValue );
+			// benign race, parsed values are immutable
+			v.parsed[ iType ][ key.iIndex ] = value;
+			return( value );
+		}
+		sValue = v.snapshot.get( key.sName );
+		return( sValue == null ? ABSENT : parser.apply( sValue ) );
+	}
+
+	/**
+	 * Resolves placeholders in the value of the specified key
+	 *
+	 * @param sName the key name
+	 * @param merged the merged raw values
+	 * @param resolved the already resolved values
+	 * @param visiting the keys being resolved, to detect cycles
+	 *
+	 * @return the resolved value
+	 */
+	private static String resolve( String sName, Map< String, String > merged, Map< String, String > resolved, Set< String > visiting ) {
+		String sResolved = resolved.get( sName );
+		if( sResolved != null ) {
+			return( sResolved );
+		}
+		String sValue = merged.get( sName );
+		if( sValue == null || sValue.indexOf( "${" ) < 0 ) {
+			return( sValue );
+		}
+		if( !visiting.add( sName ) ) {
+			throw new IllegalArgumentException( "Circular placeholder reference: " + sName );
+		}
+		StringBuilder sb = new StringBuilder( sValue.length( ) );
+		int iPos = 0;
+		while( true ) {
+			int iStart = sValue.indexOf( "${", iPos );
+			int iEnd = iStart < 0 ? -1 : sValue.indexOf( '}', iStart + 2 );
+			if( iEnd < 0 ) {
+				sb.append( sValue, iPos, sValue.length( ) );
+				break;
+			}
+			sb.append( sValue, iPos, iStart );
+			String sRef = sValue.substring( iStart + 2, iEnd );
+			String sDefault = null;
+			int iColon = sRef.indexOf( ':' );
+			if( iColon >= 0 ) {
+				sDefault = sRef.substring( iColon + 1 );
+				sRef = sRef.substring( 0, iColon );
+			}
+			String sRefValue = merged.containsKey( sRef ) ? resolve( sRef, merged, resolved, visiting ) : null;
+			if( sRefValue == null ) {
+				sRefValue = System.getProperty( sRef );
+			}
+			if( sRefValue == null ) {
+				sRefValue = System.getenv( sRef );
+			}
+			if( sRefValue == null ) {
+				sRefValue = sDefault;
+			}
+			if( sRefValue == null ) {
+				// unresolved placeholder is kept
+				sb.append( sValue, iStart, iEnd + 1 );
+			} else {
+				sb.append( sRefValue );
+			}
+			iPos = iEnd + 1;
+		}
+		visiting.remove( sName );
+		sResolved = sb.toString( );
+		resolved.put( sName, sResolved );
+		return( sResolved );
+	}
+
+	private static String toEnvName( String sName ) {
+		StringBuilder sb = new StringBuilder( sName.length( ) );
+		for( int i = 0; i < sName.length( ); i++ ) {
+			char c = sName.charAt( i );
+			sb.append( Character.isLetterOrDigit( c ) ? Character.toUpperCase( c ) : '_' );
+		}
+		return( sb.toString( ) );
+	}
+
+	/**
+	 * Resolved snapshot with the compiled keys values
+	 */
+	private static class View {
+		private final Parameters.Snapshot snapshot;
+		private final String[] values;
+		private final Object[][] parsed;
+
+		public View( Parameters.Snapshot snapshot, String[] values ) {
+			this.snapshot = snapshot;
+			this.values = values;
+			parsed = new Object[ 4 ][ values.length ];
+		}
+	}
+}
@@ -20,21 +20,82 @@ package org.homedns.mkh.util;
 
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
 import org.apache.log4j.Logger;
+import org.homedns.mkh.util.io.GroupCommitWriter;
+import org.homedns.mkh.util.io.TextWriter;
 
 /**
- * The application configuration parameters object
+ * The application configuration parameters object. Typed accessors read the
+ * immutable snapshot without locking, the snapshot is replaced atomically
+ * when the file is reloaded or saved. Changes made through
+ * {@link #getParameters()} become visible to the accessors after {@link #save()}.
+ * The properties object is the same for the object lifetime, reload replaces
+ * its content.
  *
  */
-public class Parameters {
+public class Parameters implements AutoCloseable {
 	private static final Logger LOG = Logger.getLogger( Parameters.class );
+	private static final long SETTLE_DELAY = 100L;
 
-	private Properties parameters = new Properties( );
+	private final Properties parameters = new Properties( );
+	private volatile Snapshot snapshot = new Snapshot( Collections.emptyMap( ) );
+	private final List< ChangeListener > listeners = new CopyOnWriteArrayList< >( );
+	private final Object saveLock = new Object( );
+	private final Object logLock = new Object( );
 	private Path path;
+	private WatchService watcher;
+	private long lSaveRequested;
+	private long lSaveCompleted;
+	private boolean bSaving;
+	// the file written by the last save, the watcher does not reload it
+	private volatile FileVersion saved;
+	private GroupCommitWriter log;
+	private ExecutorService compactor;
+	private int iCompactThreshold;
+	private int iLogged;
+	private boolean bCompactScheduled;
+
+	/**
+	 * Parameters change listener
+	 */
+	@FunctionalInterface
+	public interface ChangeListener {
+
+		/**
+		 * Called when parameters are changed
+		 *
+		 * @param keys the added, changed and removed keys
+		 * @param snapshot the new snapshot
+		 */
+		public void onChange( Set< String > keys, Snapshot snapshot );
+	}
 
 	/**
 	 * @param path
@@ -57,14 +118,335 @@ public class Parameters {
 	}
 
 	/**
-	 * Saves parameters
+	 * Returns current immutable parameters snapshot
+	 *
+	 * @return the snapshot
+	 */
+	public Snapshot getSnapshot( ) {
+		return( snapshot );
+	}
+
+	/**
+	 * Returns parameter value
+	 *
+	 * @param sKey the parameter key
+	 *
+	 * @return the value or null
+	 */
+	public String getProperty( String sKey ) {
+		return( snapshot.get( sKey ) );
+	}
+
+	/**
+	 * Returns parameter value
+	 *
+	 * @param sKey the parameter key
+	 * @param sDefault the default value
+	 *
+	 * @return the value or default value if there is no such parameter
+	 */
+	public String getProperty( String sKey, String sDefault ) {
+		return( snapshot.get( sKey, sDefault ) );
+	}
+
+	/**
+	 * @see Snapshot#getInt(String, int)
+	 */
+	public int getInt( String sKey, int iDefault ) {
+		return( snapshot.getInt( sKey, iDefault ) );
+	}
+
+	/**
+	 * @see Snapshot#getLong(String, long)
+	 */
+	public long getLong( String sKey, long lDefault ) {
+		return( snapshot.getLong( sKey, lDefault ) );
+	}
+
+	/**
+	 * @see Snapshot#getBoolean(String, boolean)
+	 */
+	public boolean getBoolean( String sKey, boolean bDefault ) {
+		return( snapshot.getBoolean( sKey, bDefault ) );
+	}
+
+	/**
+	 * @see Snapshot#getDuration(String, Duration)
+	 */
+	public Duration getDuration( String sKey, Duration defaultValue ) {
+		return( snapshot.getDuration( sKey, defaultValue ) );
+	}
+
+	/**
+	 * Adds change listener
+	 *
+	 * @param listener the listener
+	 */
+	public void addListener( ChangeListener listener ) {
+		listeners.add( listener );
+	}
+
+	/**
+	 * Removes change listener
+	 *
+	 * @param listener the listener
+	 */
+	public void removeListener( ChangeListener listener ) {
+		listeners.remove( listener );
+	}
+
+	/**
+	 * Starts watching the file, it is reloaded when changed on disk
+	 *
+	 * @throws IOException
+	 */
+	public synchronized void watch( ) throws IOException {
+		if( watcher != null ) {
+			return;
+		}
+		Path dir = path.toAbsolutePath( ).getParent( );
+		watcher = dir.getFileSystem( ).newWatchService( );
+		dir.register(
+			watcher,
+			StandardWatchEventKinds.ENTRY_CREATE,
+			StandardWatchEventKinds.ENTRY_MODIFY
+		);
+		WatchService service = watcher;
+		Thread thread = new Thread( ( ) -> watch( service ), "parameters-" + path.getFileName( ) );
+		thread.setDaemon( true );
+		thread.start( );
+	}
+
+	/**
+	 * Stops watching the file, compacts the change log
+	 *
+	 * @see java.lang.AutoCloseable#close()
+	 */
+	@Override
+	public void close( ) throws IOException {
+		synchronized( this ) {
+			if( watcher != null ) {
+				watcher.close( );
+				watcher = null;
+			}
+		}
+		synchronized( logLock ) {
+			if( log != null ) {
+				compactor.shutdown( );
+				compact( false );
+			}
+		}
+	}
+
+	/**
+	 * Rereads parameters file, unsaved changes are discarded
+	 *
+	 * @throws IOException
+	 */
+	public void reload( ) throws IOException {
+		readConfig( );
+	}
+
+	/**
+	 * Saves parameters. The file is replaced atomically, its comments and
+	 * entries order are preserved. Concurrent saves are coalesced, the save
+	 * which waits for the running one is completed by the next write. In the
+	 * change log mode the log is compacted into the file.
 	 * 
 	 * @throws IOException
 	 */
 	public void save( ) throws IOException {
-		try( FileOutputStream stream = new FileOutputStream( path.toFile( ) ) ) {
-			parameters.store( stream, null );
+		if( log != null ) {
+			compact( );
+		} else {
+			saveFile( );
+		}
+	}
+
+	/**
+	 * Sets parameter value
+	 *
+	 * @param sKey the parameter key
+	 * @param sValue the parameter value
+	 *
+	 * @return the future completed when the change is durable, in the change
+	 *         log mode it is logged otherwise the file is saved
+	 */
+	public CompletableFuture< Void > set( String sKey, String sValue ) {
+		return( change( sKey, sValue ) );
+	}
+
+	/**
+	 * Removes parameter
+	 *
+	 * @param sKey the parameter key
+	 *
+	 * @return the future completed when the change is durable
+	 */
+	public CompletableFuture< Void > remove( String sKey ) {
+		return( change( sKey, null ) );
+	}
+
+	/**
+	 * Turns on the change log mode. Changes made with {@link #set(String, String)}
+	 * and {@link #remove(String)} are appended to the log file next to the
+	 * parameters file, and the log is compacted into the parameters file in
+	 * the background when it grows beyond the threshold.
+	 *
+	 * @param iCompactThreshold the number of logged changes which triggers compaction
+	 *
+	 * @throws IOException
+	 */
+	public void enableLog( int iCompactThreshold ) throws IOException {
+		synchronized( logLock ) {
+			if( log != null ) {
+				return;
+			}
+			this.iCompactThreshold = iCompactThreshold;
+			compactor = Executors.newSingleThreadExecutor( r -> {
+				Thread thread = new Thread( r, "parameters-compact-" + path.getFileName( ) );
+				thread.setDaemon( true );
+				return( thread );
+			} );
+			log = new GroupCommitWriter( getLogPath( ), true );
+		}
+	}
+
+	/**
+	 * Compacts change log into the parameters file
+	 *
+	 * @throws IOException
+	 */
+	public void compact( ) throws IOException {
+		synchronized( logLock ) {
+			if( log != null ) {
+				compact( true );
+			}
+		}
+	}
+
+	/**
+	 * Compacts change log into the parameters file, caller holds the log lock
+	 *
+	 * @param bReopen if true the new log is started
+	 *
+	 * @throws IOException
+	 */
+	private void compact( boolean bReopen ) throws IOException {
+		bCompactScheduled = false;
+		// pending records are written before the log is closed
+		log.close( );
+		log = null;
+		try {
+			saveFile( );
+			Files.deleteIfExists( getLogPath( ) );
+			iLogged = 0;
+		}
+		finally {
+			// on failure records stay in the log and new ones are appended
+			if( bReopen ) {
+				log = new GroupCommitWriter( getLogPath( ), true );
+			}
+		}
+	}
+
+	/**
+	 * Changes parameter
+	 *
+	 * @param sKey the parameter key
+	 * @param sValue the parameter value, null to remove
+	 *
+	 * @return the future completed when the change is durable
+	 */
+	private CompletableFuture< Void > change( String sKey, String sValue ) {
+		CompletableFuture< Void > future;
+		synchronized( logLock ) {
+			apply( parameters, sKey, sValue );
+			update( parameters );
+			if( log == null ) {
+				future = new CompletableFuture< >( );
+				try {
+					saveFile( );
+					future.complete( null );
+				}
+				catch( IOException e ) {
+					future.completeExceptionally( e );
+				}
+				return( future );
+			}
+			StringBuilder sb = new StringBuilder( );
+			if( sValue == null ) {
+				PropertiesWriter.escape( sb.append( 'R' ), sKey, true );
+				sb.append( '\n' );
+			} else {
+				PropertiesWriter.append( sb.append( 'S' ), sKey, sValue );
+			}
+			future = log.append( sb );
+			if( ++iLogged >= iCompactThreshold && !bCompactScheduled ) {
+				bCompactScheduled = true;
+				compactor.execute( ( ) -> {
+					try {
+						compact( );
+					}
+					catch( IOException e ) {
+						LOG.error( e.getMessage( ), e );
+					}
+				} );
+			}
+		}
+		return( future );
+	}
+
+	/**
+	 * Writes parameters file atomically, concurrent calls are coalesced
+	 *
+	 * @throws IOException
+	 */
+	private void saveFile( ) throws IOException {
+		long lTicket;
+		synchronized( saveLock ) {
+			lTicket = ++lSaveRequested;
+			while( true ) {
+				if( lSaveCompleted >= lTicket ) {
+					return;
+				}
+				if( !bSaving ) {
+					break;
+				}
+				try {
+					saveLock.wait( );
+				}
+				catch( InterruptedException e ) {
+					Thread.currentThread( ).interrupt( );
+					throw new IOException( e );
+				}
+			}
+			bSaving = true;
+			// every request made so far is covered by this write
+			lTicket = lSaveRequested;
+		}
+		boolean bSaved = false;
+		try {
+			Properties properties = parameters;
+			Map< String, String > values = new HashMap< >( );
+			for( String sKey : properties.stringPropertyNames( ) ) {
+				values.put( sKey, properties.getProperty( sKey ) );
+			}
+			String sContent = PropertiesWriter.render( path, values );
+			TextWriter.write( path, sContent, TextWriter.Mode.ATOMIC );
+			saved = FileVersion.of( path );
 			LOG.debug( "Properties file " + path.getFileName( ) + " is successfully saved" );
+			update( properties );
+			bSaved = true;
+		}
+		finally {
+			synchronized( saveLock ) {
+				bSaving = false;
+				if( bSaved ) {
+					lSaveCompleted = Math.max( lSaveCompleted, lTicket );
+				}
+				saveLock.notifyAll( );
+			}
 		}
 	}
 	
@@ -74,9 +456,360 @@ public class Parameters {
 	 * @throws FileNotFoundException, IOException
 	 */
 	private void readConfig( ) throws FileNotFoundException, IOException {
+		Properties properties = new Properties( );
 		try( FileInputStream stream = new FileInputStream( path.toFile( ) ) ) {
-			parameters.load( stream );
+			properties.load( stream );
 			LOG.debug( "Properties file " + path.getFileName( ) + " is successfully loaded" );
 		}
+		replayLog( properties );
+		// the properties lock makes the content swap atomic for the other properties calls
+		synchronized( parameters ) {
+			parameters.clear( );
+			parameters.putAll( properties );
+		}
+		update( parameters );
+	}
+
+	/**
+	 * Applies changes from the change log if it exists
+	 *
+	 * @param properties the parameters to change
+	 *
+	 * @throws IOException
+	 */
+	private void replayLog( Properties properties ) throws IOException {
+		String sLog;
+		try {
+			sLog = new String( Files.readAllBytes( getLogPath( ) ), StandardCharsets.ISO_8859_1 );
+		}
+		catch( NoSuchFileException e ) {
+			return;
+		}
+		int iStart = 0;
+		int iEnd;
+		// the record without the line feed is torn by the crash
+		while( ( iEnd = sLog.indexOf( '\n', iStart ) ) >= 0 ) {
+			String sRecord = sLog.substring( iStart, iEnd );
+			iStart = iEnd + 1;
+			if( sRecord.isEmpty( ) ) {
+				continue;
+			}
+			Properties record = new Properties( );
+			record.load( new StringReader( sRecord.substring( 1 ) ) );
+			for( String sKey : record.stringPropertyNames( ) ) {
+				apply( properties, sKey, sRecord.charAt( 0 ) == 'R' ? null : record.getProperty( sKey ) );
+			}
+		}
+	}
+
+	private Path getLogPath( ) {
+		return( path.resolveSibling( path.getFileName( ) + ".wal" ) );
+	}
+
+	private static void apply( Properties properties, String sKey, String sValue ) {
+		if( sValue == null ) {
+			properties.remove( sKey );
+		} else {
+			properties.setProperty( sKey, sValue );
+		}
+	}
+
+	/**
+	 * Builds new snapshot and notifies listeners on the changed keys
+	 *
+	 * @param properties the new parameters
+	 */
+	private synchronized void update( Properties properties ) {
+		Map< String, String > values = new HashMap< >( );
+		for( String sKey : properties.stringPropertyNames( ) ) {
+			values.put( sKey, properties.getProperty( sKey ) );
+		}
+		Snapshot old = snapshot;
+		Set< String > changed = new HashSet< >( );
+		for( Map.Entry< String, String > entry : values.entrySet( ) ) {
+			if( !entry.getValue( ).equals( old.values.get( entry.getKey( ) ) ) ) {
+				changed.add( entry.getKey( ) );
+			}
+		}
+		for( String sKey : old.values.keySet( ) ) {
+			if( !values.containsKey( sKey ) ) {
+				changed.add( sKey );
+			}
+		}
+		if( changed.isEmpty( ) ) {
+			return;
+		}
+		Snapshot current = new Snapshot( values );
+		snapshot = current;
+		Set< String > keys = Collections.unmodifiableSet( changed );
+		for( ChangeListener listener : listeners ) {
+			try {
+				listener.onChange( keys, current );
+			}
+			catch( Exception e ) {
+				LOG.error( e.getMessage( ), e );
+			}
+		}
+	}
+
+	/**
+	 * Watch loop
+	 *
+	 * @param service the watch service
+	 */
+	private void watch( WatchService service ) {
+		Path fileName = path.getFileName( );
+		while( true ) {
+			try {
+				WatchKey key = service.take( );
+				// lets the writer finish, changes which come meanwhile are handled by one reload
+				Thread.sleep( SETTLE_DELAY );
+				boolean bChanged = false;
+				while( key != null ) {
+					for( WatchEvent< ? > event : key.pollEvents( ) ) {
+						bChanged |= fileName.equals( event.context( ) ) || event.kind( ) == StandardWatchEventKinds.OVERFLOW;
+					}
+					key.reset( );
+					key = service.poll( );
+				}
+				FileVersion version = saved;
+				if( bChanged && ( version == null || !version.equals( FileVersion.of( path ) ) ) ) {
+					reload( );
+				}
+			}
+			catch( ClosedWatchServiceException | InterruptedException e ) {
+				break;
+			}
+			catch( Exception e ) {
+				// the file may be in the middle of the rewrite, it is read again on the next change
+				LOG.error( e.getMessage( ), e );
+			}
+		}
+	}
+
+	/**
+	 * File identity and modification time
+	 */
+	private static class FileVersion {
+		private final Object fileKey;
+		private final FileTime modified;
+		private final long lSize;
+
+		public FileVersion( BasicFileAttributes attrs ) {
+			fileKey = attrs.fileKey( );
+			modified = attrs.lastModifiedTime( );
+			lSize = attrs.size( );
+		}
+
+		/**
+		 * Returns version of the file
+		 *
+		 * @param path the file path
+		 *
+		 * @return the file version or null if it is unavailable
+		 */
+		public static FileVersion of( Path path ) {
+			try {
+				return( new FileVersion( Files.readAttributes( path, BasicFileAttributes.class ) ) );
+			}
+			catch( IOException e ) {
+				return( null );
+			}
+		}
+
+		/**
+		 * @see java.lang.Object#hashCode()
+		 */
+		@Override
+		public int hashCode( ) {
+			return( modified.hashCode( ) );
+		}
+
+		/**
+		 * @see java.lang.Object#equals(java.lang.Object)
+		 */
+		@Override
+		public boolean equals( Object obj ) {
+			if( !( obj instanceof FileVersion ) ) {
+				return( false );
+			}
+			FileVersion other = ( FileVersion )obj;
+			return( 
+				fileKey != null && fileKey.equals( other.fileKey ) && 
+				modified.equals( other.modified ) && lSize == other.lSize 
+			);
+		}
+	}
+
+	/**
+	 * Immutable parameters snapshot, parsed typed values are cached
+	 */
+	public static class Snapshot {
+		private static final Object ABSENT = new Object( );
+
+		private final Map< String, String > values;
+		private final Map< String, Object > ints = new ConcurrentHashMap< >( );
+		private final Map< String, Object > longs = new ConcurrentHashMap< >( );
+		private final Map< String, Object > booleans = new ConcurrentHashMap< >( );
+		private final Map< String, Object > durations = new ConcurrentHashMap< >( );
+
+		/**
+		 * @param values the parameter values, the map must not be changed afterwards
+		 */
+		public Snapshot( Map< String, String > values ) {
+			this.values = Collections.unmodifiableMap( values );
+		}
+
+		/**
+		 * Returns parameter values
+		 *
+		 * @return the unmodifiable values map
+		 */
+		public Map< String, String > getValues( ) {
+			return( values );
+		}
+
+		/**
+		 * Returns parameter value
+		 *
+		 * @param sKey the parameter key
+		 *
+		 * @return the value or null
+		 */
+		public String get( String sKey ) {
+			return( values.get( sKey ) );
+		}
+
+		/**
+		 * Returns parameter value
+		 *
+		 * @param sKey the parameter key
+		 * @param sDefault the default value
+		 *
+		 * @return the value or default value if there is no such parameter
+		 */
+		public String get( String sKey, String sDefault ) {
+			String sValue = values.get( sKey );
+			return( sValue == null ? sDefault : sValue );
+		}
+
+		/**
+		 * Returns int parameter value
+		 *
+		 * @param sKey the parameter key
+		 * @param iDefault the default value
+		 *
+		 * @return the value or default value if there is no such parameter
+		 *
+		 * @throws NumberFormatException if the value is not a number
+		 */
+		public int getInt( String sKey, int iDefault ) {
+			Object value = getParsed( ints, sKey, s -> Integer.valueOf( s.trim( ) ) );
+			return( value == ABSENT ? iDefault : ( Integer )value );
+		}
+
+		/**
+		 * Returns long parameter value
+		 *
+		 * @param sKey the parameter key
+		 * @param lDefault the default value
+		 *
+		 * @return the value or default value if there is no such parameter
+		 *
+		 * @throws NumberFormatException if the value is not a number
+		 */
+		public long getLong( String sKey, long lDefault ) {
+			Object value = getParsed( longs, sKey, s -> Long.valueOf( s.trim( ) ) );
+			return( value == ABSENT ? lDefault : ( Long )value );
+		}
+
+		/**
+		 * Returns boolean parameter value
+		 *
+		 * @param sKey the parameter key
+		 * @param bDefault the default value
+		 *
+		 * @return the value or default value if there is no such parameter
+		 */
+		public boolean getBoolean( String sKey, boolean bDefault ) {
+			Object value = getParsed( booleans, sKey, s -> Boolean.valueOf( s.trim( ) ) );
+			return( value == ABSENT ? bDefault : ( Boolean )value );
+		}
+
+		/**
+		 * Returns duration parameter value. The value is either ISO-8601
+		 * duration, e.g. PT15M, or number with optional unit: ms, s, m, h, d,
+		 * number without unit is milliseconds.
+		 *
+		 * @param sKey the parameter key
+		 * @param defaultValue the default value
+		 *
+		 * @return the value or default value if there is no such parameter
+		 *
+		 * @throws IllegalArgumentException if the value is not a duration
+		 */
+		public Duration getDuration( String sKey, Duration defaultValue ) {
+			Object value = getParsed( durations, sKey, Snapshot::parseDuration );
+			return( value == ABSENT ? defaultValue : ( Duration )value );
+		}
+
+		/**
+		 * Returns cached parsed value
+		 *
+		 * @param cache the cache
+		 * @param sKey the parameter key
+		 * @param parser the value parser
+		 *
+		 * @return the parsed value or {@link #ABSENT}
+		 */
+		private Object getParsed( Map< String, Object > cache, String sKey, Function< String, Object > parser ) {
+			Object value = cache.get( sKey );
+			if( value == null ) {
+				String sValue = values.get( sKey );
+				value = sValue == null ? ABSENT : parser.apply( sValue );
+				cache.put( sKey, value );
+			}
+			return( value );
+		}
+
+		/**
+		 * Parses duration
+		 *
+		 * @param sValue the value
+		 *
+		 * @return the duration
+		 */
+		private static Duration parseDuration( String sValue ) {
+			String s = sValue.trim( ).toLowerCase( );
+			if( s.startsWith( "p" ) || s.startsWith( "-p" ) ) {
+				return( Duration.parse( s.toUpperCase( ) ) );
+			}
+			int iEnd = s.length( );
+			while( iEnd > 0 && Character.isLetter( s.charAt( iEnd - 1 ) ) ) {
+				iEnd--;
+			}
+			long lAmount;
+			try {
+				lAmount = Long.parseLong( s.substring( 0, iEnd ).trim( ) );
+			}
+			catch( NumberFormatException e ) {
+				throw new IllegalArgumentException( "Invalid duration: " + sValue );
+			}
+			switch( s.substring( iEnd ) ) {
+				case "":
+				case "ms":
+					return( Duration.ofMillis( lAmount ) );
+				case "s":
+					return( Duration.ofSeconds( lAmount ) );
+				case "m":
+					return( Duration.ofMinutes( lAmount ) );
+				case "h":
+					return( Duration.ofHours( lAmount ) );
+				case "d":
+					return( Duration.ofDays( lAmount ) );
+				default:
+					throw new IllegalArgumentException( "Invalid duration: " + sValue );
+			}
+		}
 	}
 }
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2026 Mikhail Khodonov.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.homedns.mkh.util;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Renders properties in the {@link Properties#load(java.io.InputStream)}
+ * format keeping the layout of the existing file: comments, blank lines,
+ * key order and unchanged entries are preserved as is, changed entries are
+ * rewritten in place, removed ones are dropped and new ones are appended
+ * in the key order.
+ *
+ */
+class PropertiesWriter {
+
+	private PropertiesWriter( ) {
+	}
+
+	/**
+	 * Renders properties over the layout of the existing file
+	 *
+	 * @param path the existing file path, it may not exist
+	 * @param values the property values
+	 *
+	 * @return the file content, ASCII only
+	 *
+	 * @throws IOException
+	 */
+	public static String render( Path path, Map< String, String > values ) throws IOException {
+		List< String > lines;
+		try {
+			lines = Files.readAllLines( path, StandardCharsets.ISO_8859_1 );
+		}
+		catch( NoSuchFileException e ) {
+			lines = Collections.emptyList( );
+		}
+		StringBuilder sb = new StringBuilder( );
+		Set< String > written = new HashSet< >( );
+		int i = 0;
+		while( i < lines.size( ) ) {
+			String sLine = lines.get( i );
+			String sTrimmed = stripLeading( sLine );
+			if( sTrimmed.isEmpty( ) || sTrimmed.charAt( 0 ) == '#' || sTrimmed.charAt( 0 ) == '!' ) {
+				sb.append( sLine ).append( '\n' );
+				i++;
+				continue;
+			}
+			int iStart = i;
+			while( isContinued( lines.get( i ) ) && i + 1 < lines.size( ) ) {
+				i++;
+			}
+			i++;
+			StringBuilder logical = new StringBuilder( );
+			for( int j = iStart; j < i; j++ ) {
+				logical.append( lines.get( j ) ).append( '\n' );
+			}
+			Properties entry = new Properties( );
+			entry.load( new StringReader( logical.toString( ) ) );
+			String sKey = entry.stringPropertyNames( ).iterator( ).next( );
+			if( !values.containsKey( sKey ) || !written.add( sKey ) ) {
+				continue;
+			}
+			String sValue = values.get( sKey );
+			if( sValue.equals( entry.getProperty( sKey ) ) ) {
+				sb.append( logical );
+			} else {
+				append( sb, sKey, sValue );
+			}
+		}
+		List< String > added = new ArrayList< >( values.keySet( ) );
+		added.removeAll( written );
+		Collections.sort( added );
+		for( String sKey : added ) {
+			append( sb, sKey, values.get( sKey ) );
+		}
+		return( sb.toString( ) );
+	}
+
+	/**
+	 * Appends escaped entry line
+	 *
+	 * @param sb the target string builder
+	 * @param sKey the key
+	 * @param sValue the value
+	 *
+	 * @return the target string builder
+	 */
+	public static StringBuilder append( StringBuilder sb, String sKey, String sValue ) {
+		escape( sb, sKey, true );
+		sb.append( '=' );
+		escape( sb, sValue, false );
+		return( sb.append( '\n' ) );
+	}
+
+	/**
+	 * Escapes key or value the same way {@link Properties#store(java.io.OutputStream, String)} does
+	 *
+	 * @param sb the target string builder
+	 * @param s the string to escape
+	 * @param bKey if true all spaces are escaped, otherwise the leading one only
+	 */
+	public static void escape( StringBuilder sb, String s, boolean bKey ) {
+		for( int i = 0; i < s.length( ); i++ ) {
+			char c = s.charAt( i );
+			switch( c ) {
+				case ' ':
+					sb.append( i == 0 || bKey ? "\\ " : " " );
+					break;
+				case '\t':
+					sb.append( "\\t" );
+					break;
+				case '\n':
+					sb.append( "\\n" );
+					break;
+				case '\r':
+					sb.append( "\\r" );
+					break;
+				case '\f':
+					sb.append( "\\f" );
+					break;
+				case '=':
+				case ':':
+				case '#':
+				case '!':
+				case '\\':
+					sb.append( '\\' ).append( c );
+					break;
+				default:
+					if( c < 0x20 || c > 0x7e ) {
+						sb.append( "\\u" );
+						String sHex = Integer.toHexString( c ).toUpperCase( );
+						for( int j = sHex.length( ); j < 4; j++ ) {
+							sb.append( '0' );
+						}
+						sb.append( sHex );
+					} else {
+						sb.append( c );
+					}
+			}
+		}
+	}
+
+	/**
+	 * Returns true if the line ends with the odd number of backslashes
+	 */
+	private static boolean isContinued( String sLine ) {
+		int iCount = 0;
+		for( int i = sLine.length( ) - 1; i >= 0 && sLine.charAt( i ) == '\\'; i-- ) {
+			iCount++;
+		}
+		return( ( iCount & 1 ) == 1 );
+	}
+
+	private static String stripLeading( String s ) {
+		int i = 0;
+		while( i < s.length( ) && ( s.charAt( i ) == ' ' || s.charAt( i ) == '\t' || s.charAt( i ) == '\f' ) ) {
+			i++;
+		}
+		return( s.substring( i ) );
+	}
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2026 Mikhail Khodonov.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.homedns.mkh.util;
+
+import java.security.SecureRandom;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Random string generator over the configurable alphabet. Instances are
+ * immutable and thread safe. In fast mode chars are drawn from
+ * {@link ThreadLocalRandom}, in secure mode from per thread
+ * {@link SecureRandom} instances which should be used for tokens.
+ *
+ */
+public class RandomStringGenerator {
+	public static final String ALPHANUMERIC = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
+	public static final String BASE64URL = ALPHANUMERIC + "-_";
+	public static final String HEX = "0123456789abcdef";
+
+	private static final int BLOCK_SIZE = 256;
+	private static final ThreadLocal< SecureSource > SECURE = ThreadLocal.withInitial( SecureSource::new );
+
+	private final char[] alphabet;
+	private final boolean bSecure;
+	private final int iMask;
+
+	/**
+	 * @param sAlphabet the chars to build strings from, chars may repeat to give them more weight
+	 * @param bSecure the secure mode flag
+	 */
+	public RandomStringGenerator( String sAlphabet, boolean bSecure ) {
+		this( sAlphabet.toCharArray( ), bSecure );
+	}
+
+	/**
+	 * @param alphabet the chars to build strings from, chars may repeat to give them more weight
+	 * @param bSecure the secure mode flag
+	 */
+	public RandomStringGenerator( char[] alphabet, boolean bSecure ) {
+		if( alphabet.length == 0 || alphabet.length > 256 ) {
+			throw new IllegalArgumentException( "Alphabet size must be in range 1..256: " + alphabet.length );
+		}
+		this.alphabet = alphabet.clone( );
+		this.bSecure = bSecure;
+		iMask = alphabet.length == 1 ? 0 : ( Integer.highestOneBit( alphabet.length - 1 ) << 1 ) - 1;
+	}
+
+	/**
+	 * Returns random string of the specified length
+	 *
+	 * @param iLength the length
+	 *
+	 * @return the random string
+	 */
+	public String next( int iLength ) {
+		char[] ac = new char[ iLength ];
+		next( ac, 0, iLength );
+		return( new String( ac ) );
+	}
+
+	/**
+	 * Fills specified region of the target array with random chars
+	 *
+	 * @param dst the target array
+	 * @param iOffset the region offset
+	 * @param iLength the region length
+	 */
+	public void next( char[] dst, int iOffset, int iLength ) {
+		if( iOffset < 0 || iLength < 0 || iOffset > dst.length - iLength ) {
+			throw new IndexOutOfBoundsException( "offset " + iOffset + ", length " + iLength + ", size " + dst.length );
+		}
+		int iEnd = iOffset + iLength;
+		if( bSecure ) {
+			SecureSource source = SECURE.get( );
+			for( int i = iOffset; i < iEnd; i++ ) {
+				dst[ i ] = alphabet[ source.nextIndex( alphabet.length, iMask ) ];
+			}
+		} else {
+			ThreadLocalRandom random = ThreadLocalRandom.current( );
+			for( int i = iOffset; i < iEnd; i++ ) {
+				dst[ i ] = alphabet[ random.nextInt( alphabet.length ) ];
+			}
+		}
+	}
+
+	/**
+	 * Appends random chars to the specified string builder
+	 *
+	 * @param sb the target string builder
+	 * @param iLength the number of chars to append
+	 */
+	public void next( StringBuilder sb, int iLength ) {
+		int iStart = sb.length( );
+		sb.setLength( iStart + iLength );
+		if( bSecure ) {
+			SecureSource source = SECURE.get( );
+			for( int i = iStart; i < sb.length( ); i++ ) {
+				sb.setCharAt( i, alphabet[ source.nextIndex( alphabet.length, iMask ) ] );
+			}
+		} else {
+			ThreadLocalRandom random = ThreadLocalRandom.current( );
+			for( int i = iStart; i < sb.length( ); i++ ) {
+				sb.setCharAt( i, alphabet[ random.nextInt( alphabet.length ) ] );
+			}
+		}
+	}
+
+	/**
+	 * Generates specified number of strings of the same length, all of them share one backing array fill
+	 *
+	 * @param iCount the number of strings
+	 * @param iLength the length of each string
+	 *
+	 * @return the random strings
+	 */
+	public String[] next( int iCount, int iLength ) {
+		char[] ac = new char[ iCount * iLength ];
+		next( ac, 0, ac.length );
+		String[] as = new String[ iCount ];
+		for( int i = 0; i < iCount; i++ ) {
+			as[ i ] = new String( ac, i * iLength, iLength );
+		}
+		return( as );
+	}
+
+	/**
+	 * Returns true if generator is in secure mode
+	 *
+	 * @return true or false
+	 */
+	public boolean isSecure( ) {
+		return( bSecure );
+	}
+
+	/**
+	 * Per thread secure random with prefetched bytes block
+	 */
+	private static class SecureSource {
+		private final SecureRandom random = new SecureRandom( );
+		private final byte[] block = new byte[ BLOCK_SIZE ];
+		private int iPos = BLOCK_SIZE;
+
+		/**
+		 * Returns uniformly distributed index in range [0, iBound) using rejection sampling
+		 *
+		 * @param iBound the upper bound, at most 256
+		 * @param iMask the smallest 2^n - 1 mask covering iBound - 1
+		 *
+		 * @return the index
+		 */
+		public int nextIndex( int iBound, int iMask ) {
+			while( true ) {
+				if( iPos == BLOCK_SIZE ) {
+					random.nextBytes( block );
+					iPos = 0;
+				}
+				int iIndex = block[ iPos++ ] & iMask;
+				if( iIndex < iBound ) {
+					return( iIndex );
+				}
+			}
+		}
+	}
+}
@@ -16,23 +16,124 @@
 
 package org.homedns.mkh.util;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.InputStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Method;
+import java.nio.charset.Charset;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import org.apache.log4j.Logger;
 
 /**
- * Shell commands executor
+ * Shell commands executor. Standard output and error of the process are
+ * drained at the same time on the dedicated reader threads, so the process
+ * never blocks on the full pipe.
  *
  */
 public class ShellCmdExecutor {
 	private static final Logger LOG = Logger.getLogger( ShellCmdExecutor.class );
+	private static final int READ_BUFFER_SIZE = 8 * 1024;
+	private static final int STREAM_QUEUE_SIZE = 1024;
+	private static final AtomicInteger THREAD_COUNT = new AtomicInteger( );
+	static final ExecutorService READERS = new ThreadPoolExecutor(
+		0, Integer.MAX_VALUE, 60L, TimeUnit.SECONDS, new SynchronousQueue< >( ), r -> {
+			Thread thread = new Thread( r, "shell-reader-" + THREAD_COUNT.incrementAndGet( ) );
+			thread.setDaemon( true );
+			return( thread );
+		}
+	);
+
+	static final ScheduledThreadPoolExecutor WATCHDOG = new ScheduledThreadPoolExecutor( 1, r -> {
+		Thread thread = new Thread( r, "shell-watchdog" );
+		thread.setDaemon( true );
+		return( thread );
+	} );
+	private static final Method DESCENDANTS;
+	private static final Method DESTROY;
+	private static final Method TO_HANDLE;
+	private static final Method DESTROY_FORCIBLY;
+	private static final ShellCmdMetrics METRICS = new ShellCmdMetrics( );
+	/**
+	 * Default time between the termination request and the forced kill, ms
+	 */
+	public static final long DEFAULT_GRACE_PERIOD = 5000L;
+
+	static {
+		WATCHDOG.setRemoveOnCancelPolicy( true );
+		Method descendants = null;
+		Method destroy = null;
+		Method destroyForcibly = null;
+		Method toHandle = null;
+		try {
+			toHandle = Process.class.getMethod( "toHandle" );
+			descendants = Process.class.getMethod( "descendants" );
+			destroy = Class.forName( "java.lang.ProcessHandle" ).getMethod( "destroy" );
+			destroyForcibly = Class.forName( "java.lang.ProcessHandle" ).getMethod( "destroyForcibly" );
+		}
+		catch( ReflectiveOperationException e ) {
+			// java 8, process tree is not available
+			descendants = null;
+		}
+		DESCENDANTS = descendants;
+		DESTROY = destroy;
+		TO_HANDLE = toHandle;
+		DESTROY_FORCIBLY = destroyForcibly;
+	}
 
 	private File workingDir;
+	private volatile ShellWorkerPool workerPool;
+	private volatile long lTimeout;
+	private volatile long lGracePeriod = DEFAULT_GRACE_PERIOD;
+
+	/**
+	 * Process output channel
+	 */
+	public enum Channel {
+		STDOUT, STDERR
+	}
+
+	/**
+	 * Process output line consumer, calls are serialized
+	 */
+	@FunctionalInterface
+	public interface LineConsumer {
+
+		/**
+		 * Called on every output line as it arrives
+		 *
+		 * @param channel the output channel
+		 * @param sLine the line without line break
+		 *
+		 * @throws Exception
+		 */
+		public void accept( Channel channel, String sLine ) throws Exception;
+	}
 	
 	public ShellCmdExecutor( ) {
 		// default working directory
@@ -57,30 +158,283 @@ public class ShellCmdExecutor {
 	 * @throws Exception
 	 */
 	public List< String > execute( List< String > command, boolean bBuiltin ) throws Exception {
-		if( Util.isWindows( ) ) {
-			command.add( 0, "cmd.exe" );	// ??? it may not work when command is fixed-size list backed by the array.
-			command.add( 1, "/c" );
-		} else {
-			if( !bBuiltin ) {
-				command.set( 0, "./" + command.get( 0 ) );
+		Output output = execute( command, bBuiltin, null, Long.MAX_VALUE );
+		if( output.getExitCode( ) != 0 ) {
+			throw new IllegalArgumentException( "Failure executing command: " + command );
+		}
+		return( output.getStdout( ) );
+	}
+
+	/**
+	 * Executes specified shell command, output lines are passed to the
+	 * consumer as they arrive and captured up to the specified size
+	 *
+	 * @param command the command to execute
+	 * @param bBuiltin the built in command flag, only applicable for linux
+	 * @param consumer the line consumer, may be null
+	 * @param lMaxCapture the maximum number of captured output bytes of
+	 *        both channels, lines after the limit are not captured
+	 *
+	 * @return the process output
+	 *
+	 * @throws Exception
+	 */
+	public Output execute( List< String > command, boolean bBuiltin, LineConsumer consumer, long lMaxCapture ) throws Exception {
+		return( execute( command, bBuiltin, consumer, lMaxCapture, lTimeout ) );
+	}
+
+	/**
+	 * Executes specified shell command, output lines are passed to the
+	 * consumer as they arrive and captured up to the specified size. The
+	 * process and its descendants are killed when the timeout expires.
+	 *
+	 * @param command the command to execute
+	 * @param bBuiltin the built in command flag, only applicable for linux
+	 * @param consumer the line consumer, may be null
+	 * @param lMaxCapture the maximum number of captured output bytes of
+	 *        both channels, lines after the limit are not captured
+	 * @param lTimeout the timeout, ms, 0 means no timeout
+	 *
+	 * @return the process output
+	 *
+	 * @throws Exception
+	 */
+	public Output execute(
+		List< String > command,
+		boolean bBuiltin,
+		LineConsumer consumer,
+		long lMaxCapture,
+		long lTimeout
+	) throws Exception {
+		ShellCmdMetrics.Execution execution = METRICS.begin( command );
+		Output output = null;
+		try {
+			ShellWorkerPool pool = workerPool;
+			if( pool != null && !Util.isWindows( ) ) {
+				output = pool.execute( command, bBuiltin, workingDir.toPath( ), consumer, lMaxCapture, lTimeout, lGracePeriod );
+			} else {
+				output = run( command, bBuiltin, consumer, lMaxCapture, lTimeout );
 			}
+			return( output );
 		}
-		ProcessBuilder builder = new ProcessBuilder( );
-		builder.directory( workingDir );
-		builder.command( command );
-		LOG.debug( builder.command( ) );
-	    List< String > output = new ArrayList< >( );
-		Process process = builder.start( );
-		try( BufferedReader in = new BufferedReader( new InputStreamReader( process.getInputStream( ) ) ) ) {
-			in.lines( ).forEach( output::add );
+		finally {
+			METRICS.end( execution, output );
 		}
-		int iExit = process.waitFor( );
-		if( iExit != 0 ) {
-			throw new IllegalArgumentException( "Failure executing command: " + command );
+	}
+
+	/**
+	 * Starts process and waits for its completion
+	 *
+	 * @param command the command to execute
+	 * @param bBuiltin the built in command flag, only applicable for linux
+	 * @param consumer the line consumer, may be null
+	 * @param lMaxCapture the maximum number of captured output bytes of both channels
+	 * @param lTimeout the timeout, ms, 0 means no timeout
+	 *
+	 * @return the process output
+	 *
+	 * @throws Exception
+	 */
+	private Output run(
+		List< String > command,
+		boolean bBuiltin,
+		LineConsumer consumer,
+		long lMaxCapture,
+		long lTimeout
+	) throws Exception {
+		long lStart = System.nanoTime( );
+		Process process = start( command, bBuiltin );
+		Output output = new Output( lMaxCapture );
+		output.setSpawnNanos( System.nanoTime( ) - lStart );
+		ScheduledFuture< ? > watchdog = null;
+		if( lTimeout > 0 ) {
+			long lGrace = lGracePeriod;
+			watchdog = WATCHDOG.schedule( ( ) -> {
+				output.setTimedOut( );
+				LOG.warn( "Command timed out: " + command );
+				terminate( process, lGrace );
+			}, lTimeout, TimeUnit.MILLISECONDS );
+		}
+		Object lock = new Object( );
+		try {
+			Future< ? > stderr = READERS.submit( ( ) -> {
+				pump( process.getErrorStream( ), Channel.STDERR, output, consumer, lock );
+				return( null );
+			} );
+			pump( process.getInputStream( ), Channel.STDOUT, output, consumer, lock );
+			stderr.get( );
+			output.complete( process.waitFor( ), System.nanoTime( ) - lStart );
+		}
+		catch( Exception e ) {
+			if( !output.isTimedOut( ) ) {
+				killTree( process );
+				throw e;
+			}
+			// streams are closed by the termination on java 8
+			output.complete( process.waitFor( ), System.nanoTime( ) - lStart );
+		}
+		finally {
+			if( watchdog != null ) {
+				watchdog.cancel( false );
+			}
 		}
 		return( output );
 	}
 
+	/**
+	 * Executes commands concurrently
+	 *
+	 * @param commands the commands to execute
+	 * @param bBuiltin the built in command flag, only applicable for linux
+	 * @param iParallelism the maximum number of commands running at once
+	 * @param lMaxCapture the maximum number of captured output bytes per command
+	 * @param lTimeout the per command timeout, ms, 0 means no timeout
+	 *
+	 * @return the batch
+	 */
+	public Batch executeAll(
+		List< List< String > > commands,
+		boolean bBuiltin,
+		int iParallelism,
+		long lMaxCapture,
+		long lTimeout
+	) {
+		AtomicInteger count = new AtomicInteger( );
+		ExecutorService executor = Executors.newFixedThreadPool( iParallelism, r -> {
+			Thread thread = new Thread( r, "shell-batch-" + count.incrementAndGet( ) );
+			thread.setDaemon( true );
+			return( thread );
+		} );
+		Batch batch = new Batch( commands.size( ) );
+		try {
+			for( List< String > command : commands ) {
+				long lQueued = System.nanoTime( );
+				batch.futures.add(
+					CompletableFuture.supplyAsync( ( ) -> {
+						long lStarted = System.nanoTime( );
+						Output output = null;
+						try {
+							output = execute( command, bBuiltin, null, lMaxCapture, lTimeout );
+							return( output );
+						}
+						catch( Exception e ) {
+							throw new CompletionException( e );
+						}
+						finally {
+							batch.stats.record( lStarted - lQueued, System.nanoTime( ) - lStarted, output );
+						}
+					}, executor )
+				);
+			}
+		}
+		finally {
+			// idle threads exit after the last command
+			executor.shutdown( );
+		}
+		batch.done = CompletableFuture
+			.allOf( batch.futures.toArray( new CompletableFuture< ? >[ 0 ] ) )
+			.handle( ( v, e ) -> {
+				batch.stats.lWallTime = System.nanoTime( ) - batch.lStart;
+				return( batch.stats );
+			} );
+		return( batch );
+	}
+
+	/**
+	 * Executes specified shell command and returns its standard output lines
+	 * as they arrive. Standard error is drained and logged. At most a fixed
+	 * number of lines is buffered, the process is paused by the full pipe
+	 * until the stream is read on. The stream must be closed, closing it
+	 * before the end kills the process. Non zero exit code causes
+	 * {@link IllegalArgumentException} at the end of the stream.
+	 *
+	 * @param command the command to execute
+	 * @param bBuiltin the built in command flag, only applicable for linux
+	 *
+	 * @return the lines stream
+	 *
+	 * @throws IOException
+	 */
+	public Stream< String > stream( List< String > command, boolean bBuiltin ) throws IOException {
+		Process process = start( command, bBuiltin );
+		BlockingQueue< Object > queue = new ArrayBlockingQueue< >( STREAM_QUEUE_SIZE );
+		Object end = new Object( );
+		AtomicBoolean closed = new AtomicBoolean( );
+		// channels are not captured, so separate locks keep stderr drained while stdout waits for the space
+		READERS.execute( ( ) -> {
+			try {
+				pump( process.getErrorStream( ), Channel.STDERR, new Output( 0 ), ( channel, sLine ) -> LOG.debug( sLine ), new Object( ) );
+			}
+			catch( IOException e ) {
+				LOG.debug( e.getMessage( ), e );
+			}
+		} );
+		READERS.execute( ( ) -> {
+			try {
+				pump(
+					process.getInputStream( ),
+					Channel.STDOUT,
+					new Output( 0 ),
+					( channel, sLine ) -> offer( queue, sLine, closed ),
+					new Object( )
+				);
+				offer( queue, process.waitFor( ) == 0 ? end : new IllegalArgumentException( "Failure executing command: " + command ), closed );
+			}
+			catch( Exception e ) {
+				if( !closed.get( ) ) {
+					queue.offer( e );
+				}
+			}
+		} );
+		Iterator< String > iterator = new Iterator< String >( ) {
+			private Object next;
+
+			@Override
+			public boolean hasNext( ) {
+				if( next == null ) {
+					try {
+						next = queue.take( );
+					}
+					catch( InterruptedException e ) {
+						Thread.currentThread( ).interrupt( );
+						throw new IllegalStateException( e );
+					}
+				}
+				if( next instanceof RuntimeException ) {
+					throw ( RuntimeException )next;
+				}
+				if( next instanceof IOException ) {
+					throw new UncheckedIOException( ( IOException )next );
+				}
+				if( next instanceof Exception ) {
+					throw new IllegalStateException( ( Exception )next );
+				}
+				return( next != end );
+			}
+
+			@Override
+			public String next( ) {
+				if( !hasNext( ) ) {
+					throw new NoSuchElementException( );
+				}
+				String sLine = ( String )next;
+				next = null;
+				return( sLine );
+			}
+		};
+		return(
+			StreamSupport.stream(
+				Spliterators.spliteratorUnknownSize( iterator, Spliterator.ORDERED | Spliterator.NONNULL ), false
+			).onClose( ( ) -> {
+				if( process.isAlive( ) ) {
+					process.destroyForcibly( );
+				}
+				closed.set( true );
+				queue.clear( );
+			} )
+		);
+	}
+
 	/**
 	 * Sets working directory
 	 * 
@@ -89,4 +443,557 @@ public class ShellCmdExecutor {
 	public void setWorkingDir( Path workingDir ) {
 		this.workingDir = workingDir.toFile( );
 	}
+
+	/**
+	 * Sets timeout of the commands executed without explicit timeout
+	 *
+	 * @param lTimeout the timeout, ms, 0 means no timeout
+	 */
+	public void setTimeout( long lTimeout ) {
+		this.lTimeout = lTimeout;
+	}
+
+	/**
+	 * Sets time between the termination request to the timed out process
+	 * and its forced kill
+	 *
+	 * @param lGracePeriod the grace period, ms, 0 kills at once
+	 */
+	public void setGracePeriod( long lGracePeriod ) {
+		this.lGracePeriod = lGracePeriod;
+	}
+
+	/**
+	 * Returns in process metrics of all executed commands
+	 *
+	 * @return the metrics
+	 */
+	public static ShellCmdMetrics getMetrics( ) {
+		return( METRICS );
+	}
+
+	/**
+	 * Sets persistent shell workers pool, commands except the streamed ones
+	 * are executed by the pool workers instead of the new processes. The pool
+	 * is not used on windows.
+	 *
+	 * @param workerPool the pool or null to start process per command
+	 */
+	public void setWorkerPool( ShellWorkerPool workerPool ) {
+		this.workerPool = workerPool;
+	}
+
+	/**
+	 * Starts process
+	 *
+	 * @param command the command to execute
+	 * @param bBuiltin the built in command flag, only applicable for linux
+	 *
+	 * @return the process
+	 *
+	 * @throws IOException
+	 */
+	private Process start( List< String > command, boolean bBuiltin ) throws IOException {
+		List< String > cmd = new ArrayList< >( command );
+		if( Util.isWindows( ) ) {
+			cmd.addAll( 0, Arrays.asList( "cmd.exe", "/c" ) );
+		} else {
+			if( !bBuiltin ) {
+				cmd.set( 0, "./" + cmd.get( 0 ) );
+			}
+		}
+		ProcessBuilder builder = new ProcessBuilder( );
+		builder.directory( workingDir );
+		builder.command( cmd );
+		LOG.debug( builder.command( ) );
+		return( builder.start( ) );
+	}
+
+	/**
+	 * Kills process and its descendants. Descendants are found with the
+	 * process handle API when the runtime provides it (java 9+), otherwise
+	 * only the process itself is killed.
+	 *
+	 * @param process the process
+	 */
+	static void killTree( Process process ) {
+		if( DESCENDANTS != null ) {
+			try {
+				Stream< ? > descendants = ( Stream< ? > )DESCENDANTS.invoke( process );
+				descendants.forEach( handle -> {
+					try {
+						DESTROY_FORCIBLY.invoke( handle );
+					}
+					catch( ReflectiveOperationException e ) {
+						LOG.debug( e.getMessage( ), e );
+					}
+				} );
+			}
+			catch( ReflectiveOperationException e ) {
+				LOG.debug( e.getMessage( ), e );
+			}
+		}
+		process.destroyForcibly( );
+	}
+
+	/**
+	 * Asks process and its descendants to terminate, kills them if they are
+	 * still alive after the grace period
+	 *
+	 * @param process the process
+	 * @param lGracePeriod the grace period, ms
+	 */
+	static void terminate( Process process, long lGracePeriod ) {
+		terminate( process, lGracePeriod, true );
+	}
+
+	/**
+	 * Asks process descendants and optionally the process itself to
+	 * terminate, kills them if they are still alive after the grace period
+	 *
+	 * @param process the process
+	 * @param lGracePeriod the grace period, ms
+	 * @param bSelf if false only descendants are asked to terminate
+	 */
+	static void terminate( Process process, long lGracePeriod, boolean bSelf ) {
+		if( lGracePeriod <= 0 ) {
+			killTree( process );
+			return;
+		}
+		List< Object > handles = new ArrayList< >( );
+		boolean bSignaled = false;
+		if( DESCENDANTS != null ) {
+			try {
+				// the process handle does not close the process streams unlike Process.destroy()
+				if( bSelf ) {
+					handles.add( TO_HANDLE.invoke( process ) );
+				}
+				( ( Stream< ? > )DESCENDANTS.invoke( process ) ).forEach( handles::add );
+				for( Object handle : handles ) {
+					DESTROY.invoke( handle );
+				}
+				bSignaled = true;
+			}
+			catch( ReflectiveOperationException e ) {
+				LOG.debug( e.getMessage( ), e );
+			}
+		}
+		if( !bSignaled ) {
+			process.destroy( );
+		}
+		WATCHDOG.schedule( ( ) -> {
+			// descendants are remembered, they are not found from the dead parent
+			for( Object handle : handles ) {
+				try {
+					DESTROY_FORCIBLY.invoke( handle );
+				}
+				catch( ReflectiveOperationException e ) {
+					LOG.debug( e.getMessage( ), e );
+				}
+			}
+			if( process.isAlive( ) ) {
+				killTree( process );
+			}
+		}, lGracePeriod, TimeUnit.MILLISECONDS );
+	}
+
+	/**
+	 * Puts element into the stream queue waiting for the space until the stream is closed
+	 *
+	 * @param queue the queue
+	 * @param element the element
+	 * @param closed the stream closed flag
+	 *
+	 * @throws IOException if stream is closed
+	 * @throws InterruptedException
+	 */
+	private static void offer( BlockingQueue< Object > queue, Object element, AtomicBoolean closed ) throws IOException, InterruptedException {
+		while( !queue.offer( element, 100L, TimeUnit.MILLISECONDS ) ) {
+			if( closed.get( ) ) {
+				throw new IOException( "Stream is closed" );
+			}
+		}
+	}
+
+	/**
+	 * Reads lines from the process output until its end
+	 *
+	 * @param in the process output
+	 * @param channel the output channel
+	 * @param output the output to capture lines to
+	 * @param consumer the line consumer, may be null
+	 * @param lock the lock serializing consumer calls
+	 *
+	 * @throws IOException
+	 */
+	private static void pump( InputStream in, Channel channel, Output output, LineConsumer consumer, Object lock ) throws IOException {
+		Charset charset = Charset.defaultCharset( );
+		byte[] buffer = new byte[ READ_BUFFER_SIZE ];
+		byte[] line = new byte[ 256 ];
+		int iLength = 0;
+		try( InputStream stream = in ) {
+			while( true ) {
+				int iRead = stream.read( buffer );
+				if( iRead < 0 ) {
+					break;
+				}
+				for( int i = 0; i < iRead; i++ ) {
+					byte b = buffer[ i ];
+					if( b == '\n' ) {
+						emit( line, iLength, iLength + 1, channel, output, consumer, lock, charset );
+						iLength = 0;
+					} else {
+						if( iLength == line.length ) {
+							line = Arrays.copyOf( line, iLength << 1 );
+						}
+						line[ iLength++ ] = b;
+					}
+				}
+			}
+			if( iLength > 0 ) {
+				emit( line, iLength, iLength, channel, output, consumer, lock, charset );
+			}
+		}
+	}
+
+	/**
+	 * Captures line and passes it to the consumer
+	 */
+	static void emit(
+		byte[] line,
+		int iLength,
+		int iBytes,
+		Channel channel,
+		Output output,
+		LineConsumer consumer,
+		Object lock,
+		Charset charset
+	) throws IOException {
+		if( iLength > 0 && line[ iLength - 1 ] == '\r' ) {
+			iLength--;
+		}
+		String sLine = new String( line, 0, iLength, charset );
+		synchronized( lock ) {
+			output.capture( channel, sLine, iBytes );
+			if( consumer != null ) {
+				try {
+					consumer.accept( channel, sLine );
+				}
+				catch( IOException | RuntimeException e ) {
+					throw e;
+				}
+				catch( Exception e ) {
+					throw new IOException( e );
+				}
+			}
+		}
+	}
+
+	/**
+	 * Batch of the concurrently executed commands
+	 */
+	public static class Batch {
+		private final List< CompletableFuture< Output > > futures;
+		private final BatchStats stats = new BatchStats( );
+		private final long lStart = System.nanoTime( );
+		private CompletableFuture< BatchStats > done;
+
+		private Batch( int iSize ) {
+			futures = new ArrayList< >( iSize );
+		}
+
+		/**
+		 * Returns command outputs futures in the commands order
+		 *
+		 * @return the futures
+		 */
+		public List< CompletableFuture< Output > > getFutures( ) {
+			return( Collections.unmodifiableList( futures ) );
+		}
+
+		/**
+		 * Returns future completed with the stats when all commands are completed
+		 *
+		 * @return the future stats
+		 */
+		public CompletableFuture< BatchStats > getCompletion( ) {
+			return( done );
+		}
+
+		/**
+		 * Returns batch stats, they are complete after the completion
+		 *
+		 * @return the stats
+		 */
+		public BatchStats getStats( ) {
+			return( stats );
+		}
+	}
+
+	/**
+	 * Batch aggregate stats
+	 */
+	public static class BatchStats {
+		private int iCompleted;
+		private int iFailed;
+		private int iTimedOut;
+		private long lTotalQueueTime;
+		private long lMaxQueueTime;
+		private long lTotalRunTime;
+		private long lMaxRunTime;
+		private volatile long lWallTime;
+
+		/**
+		 * Records completed command
+		 *
+		 * @param lQueueTime the queue time, ns
+		 * @param lRunTime the run time, ns
+		 * @param output the output, null if command failed to execute
+		 */
+		synchronized void record( long lQueueTime, long lRunTime, Output output ) {
+			iCompleted++;
+			if( output == null || output.iExitCode != 0 ) {
+				iFailed++;
+			}
+			if( output != null && output.bTimedOut ) {
+				iTimedOut++;
+			}
+			lTotalQueueTime += lQueueTime;
+			lMaxQueueTime = Math.max( lMaxQueueTime, lQueueTime );
+			lTotalRunTime += lRunTime;
+			lMaxRunTime = Math.max( lMaxRunTime, lRunTime );
+		}
+
+		/**
+		 * Returns number of completed commands
+		 */
+		public synchronized int getCompleted( ) {
+			return( iCompleted );
+		}
+
+		/**
+		 * Returns number of commands which failed to execute or exited with non zero code
+		 */
+		public synchronized int getFailed( ) {
+			return( iFailed );
+		}
+
+		/**
+		 * Returns number of commands killed by timeout
+		 */
+		public synchronized int getTimedOut( ) {
+			return( iTimedOut );
+		}
+
+		/**
+		 * Returns average time commands waited for the free slot, ms
+		 */
+		public synchronized double getAvgQueueTime( ) {
+			return( iCompleted == 0 ? 0 : lTotalQueueTime / 1e6 / iCompleted );
+		}
+
+		/**
+		 * Returns maximum time command waited for the free slot, ms
+		 */
+		public synchronized double getMaxQueueTime( ) {
+			return( lMaxQueueTime / 1e6 );
+		}
+
+		/**
+		 * Returns average command run time, ms
+		 */
+		public synchronized double getAvgRunTime( ) {
+			return( iCompleted == 0 ? 0 : lTotalRunTime / 1e6 / iCompleted );
+		}
+
+		/**
+		 * Returns maximum command run time, ms
+		 */
+		public synchronized double getMaxRunTime( ) {
+			return( lMaxRunTime / 1e6 );
+		}
+
+		/**
+		 * Returns batch wall time, ms, 0 until batch is completed
+		 */
+		public double getWallTime( ) {
+			return( lWallTime / 1e6 );
+		}
+
+		/**
+		 * @see java.lang.Object#toString()
+		 */
+		@Override
+		public synchronized String toString( ) {
+			return(
+				String.format(
+					"completed=%d failed=%d timedOut=%d queue avg/max=%.1f/%.1f ms run avg/max=%.1f/%.1f ms wall=%.1f ms",
+					iCompleted, iFailed, iTimedOut, getAvgQueueTime( ), getMaxQueueTime( ),
+					getAvgRunTime( ), getMaxRunTime( ), getWallTime( )
+				)
+			);
+		}
+	}
+
+	/**
+	 * Process output
+	 */
+	public static class Output {
+		private final long lMaxCapture;
+		private final List< String > stdout = new ArrayList< >( );
+		private final List< String > stderr = new ArrayList< >( );
+		private long lCaptured;
+		private long lStdoutBytes;
+		private long lStderrBytes;
+		private boolean bTruncated;
+		private volatile boolean bTimedOut;
+		private int iExitCode;
+		private long lRunTime;
+		private long lSpawnTime;
+
+		/**
+		 * @param lMaxCapture the maximum number of captured bytes
+		 */
+		Output( long lMaxCapture ) {
+			this.lMaxCapture = lMaxCapture;
+		}
+
+		/**
+		 * Returns process exit code
+		 *
+		 * @return the exit code
+		 */
+		public int getExitCode( ) {
+			return( iExitCode );
+		}
+
+		/**
+		 * Returns captured standard output lines
+		 *
+		 * @return the lines
+		 */
+		public List< String > getStdout( ) {
+			return( Collections.unmodifiableList( stdout ) );
+		}
+
+		/**
+		 * Returns captured standard error lines
+		 *
+		 * @return the lines
+		 */
+		public List< String > getStderr( ) {
+			return( Collections.unmodifiableList( stderr ) );
+		}
+
+		/**
+		 * Returns total number of the standard output bytes
+		 *
+		 * @return the number of bytes
+		 */
+		public long getStdoutBytes( ) {
+			return( lStdoutBytes );
+		}
+
+		/**
+		 * Returns total number of the standard error bytes
+		 *
+		 * @return the number of bytes
+		 */
+		public long getStderrBytes( ) {
+			return( lStderrBytes );
+		}
+
+		/**
+		 * Returns true if the process was killed by timeout
+		 *
+		 * @return true if timed out
+		 */
+		public boolean isTimedOut( ) {
+			return( bTimedOut );
+		}
+
+		/**
+		 * Returns time to start the process or pass the command to the shell worker, ms
+		 *
+		 * @return the spawn time
+		 */
+		public double getSpawnTime( ) {
+			return( lSpawnTime / 1e6 );
+		}
+
+		/**
+		 * Returns time from the process start to its exit, ms
+		 *
+		 * @return the run time
+		 */
+		public double getRunTime( ) {
+			return( lRunTime / 1e6 );
+		}
+
+		/**
+		 * Returns true if some lines are not captured due to the capture limit
+		 *
+		 * @return true if output is truncated
+		 */
+		public boolean isTruncated( ) {
+			return( bTruncated );
+		}
+
+		/**
+		 * Sets process spawn time
+		 *
+		 * @param lSpawnTime the spawn time, ns
+		 */
+		void setSpawnNanos( long lSpawnTime ) {
+			this.lSpawnTime = lSpawnTime;
+		}
+
+		/**
+		 * Returns process spawn time
+		 *
+		 * @return the spawn time, ns
+		 */
+		long getSpawnNanos( ) {
+			return( lSpawnTime );
+		}
+
+		/**
+		 * Sets process completion data
+		 *
+		 * @param iExitCode the exit code
+		 * @param lRunTime the run time, ns
+		 */
+		void complete( int iExitCode, long lRunTime ) {
+			this.iExitCode = iExitCode;
+			this.lRunTime = lRunTime;
+		}
+
+		/**
+		 * Marks output as timed out
+		 */
+		void setTimedOut( ) {
+			bTimedOut = true;
+		}
+
+		/**
+		 * Captures line within the limit
+		 *
+		 * @param channel the output channel
+		 * @param sLine the line
+		 * @param iBytes the line bytes including line break
+		 */
+		void capture( Channel channel, String sLine, int iBytes ) {
+			if( channel == Channel.STDOUT ) {
+				lStdoutBytes += iBytes;
+			} else {
+				lStderrBytes += iBytes;
+			}
+			if( bTruncated || lCaptured + iBytes > lMaxCapture ) {
+				bTruncated = true;
+				return;
+			}
+			lCaptured += iBytes;
+			( channel == Channel.STDOUT ? stdout : stderr ).add( sLine );
+		}
+	}
 }
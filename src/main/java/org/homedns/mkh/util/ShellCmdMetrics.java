@@ -0,0 +1,324 @@
+/*
+ * Copyright 2026 Mikhail Khodonov.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.homedns.mkh.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In process shell commands metrics, aggregated per command name (the first
+ * command element). Recording is lock free, snapshots are consistent per
+ * counter but not across counters.
+ *
+ */
+public class ShellCmdMetrics {
+	private final Map< String, Accumulator > commands = new ConcurrentHashMap< >( );
+	private final Map< Execution, Boolean > running = new ConcurrentHashMap< >( );
+
+	/**
+	 * Registers command start
+	 *
+	 * @param command the command
+	 *
+	 * @return the execution to pass to {@link #end(Execution, ShellCmdExecutor.Output)}
+	 */
+	public Execution begin( List< String > command ) {
+		Execution execution = new Execution( command );
+		running.put( execution, Boolean.TRUE );
+		return( execution );
+	}
+
+	/**
+	 * Registers command end
+	 *
+	 * @param execution the execution
+	 * @param output the command output, null if the command failed to execute
+	 */
+	public void end( Execution execution, ShellCmdExecutor.Output output ) {
+		running.remove( execution );
+		Accumulator acc = commands.get( execution.sName );
+		if( acc == null ) {
+			acc = commands.computeIfAbsent( execution.sName, k -> new Accumulator( ) );
+		}
+		acc.record( System.nanoTime( ) - execution.lStart, output );
+	}
+
+	/**
+	 * Returns stats of all commands, the slowest by total run time first
+	 *
+	 * @return the stats list
+	 */
+	public List< CommandStats > snapshot( ) {
+		List< CommandStats > list = new ArrayList< >( commands.size( ) );
+		for( Map.Entry< String, Accumulator > entry : commands.entrySet( ) ) {
+			list.add( entry.getValue( ).snapshot( entry.getKey( ) ) );
+		}
+		list.sort( ( a, b ) -> Double.compare( b.dTotalRunTime, a.dTotalRunTime ) );
+		return( list );
+	}
+
+	/**
+	 * Returns commands running now, the longest running first, to find the hanging ones
+	 *
+	 * @return the running commands
+	 */
+	public List< Execution > getRunning( ) {
+		List< Execution > list = new ArrayList< >( running.keySet( ) );
+		list.sort( ( a, b ) -> Long.compare( a.lStart, b.lStart ) );
+		return( list );
+	}
+
+	/**
+	 * Clears stats of the completed commands
+	 */
+	public void reset( ) {
+		commands.clear( );
+	}
+
+	/**
+	 * Running command
+	 */
+	public static class Execution {
+		private final List< String > command;
+		private final String sName;
+		private final long lStart = System.nanoTime( );
+
+		Execution( List< String > command ) {
+			this.command = Collections.unmodifiableList( new ArrayList< >( command ) );
+			sName = command.isEmpty( ) ? "" : command.get( 0 );
+		}
+
+		/**
+		 * Returns command
+		 *
+		 * @return the command
+		 */
+		public List< String > getCommand( ) {
+			return( command );
+		}
+
+		/**
+		 * Returns time since the command start, ms
+		 *
+		 * @return the elapsed time
+		 */
+		public double getElapsed( ) {
+			return( ( System.nanoTime( ) - lStart ) / 1e6 );
+		}
+
+		/**
+		 * @see java.lang.Object#toString()
+		 */
+		@Override
+		public String toString( ) {
+			return( String.format( "%s running %.0f ms", command, getElapsed( ) ) );
+		}
+	}
+
+	/**
+	 * Command stats snapshot
+	 */
+	public static class CommandStats {
+		private final String sName;
+		private final long lCount;
+		private final long lFailed;
+		private final long lTimedOut;
+		private final double dAvgSpawnTime;
+		private final double dMaxSpawnTime;
+		private final double dTotalRunTime;
+		private final double dMaxRunTime;
+		private final long lOutputBytes;
+		private final Map< Integer, Long > exitCodes;
+
+		CommandStats(
+			String sName,
+			long lCount,
+			long lFailed,
+			long lTimedOut,
+			double dAvgSpawnTime,
+			double dMaxSpawnTime,
+			double dTotalRunTime,
+			double dMaxRunTime,
+			long lOutputBytes,
+			Map< Integer, Long > exitCodes
+		) {
+			this.sName = sName;
+			this.lCount = lCount;
+			this.lFailed = lFailed;
+			this.lTimedOut = lTimedOut;
+			this.dAvgSpawnTime = dAvgSpawnTime;
+			this.dMaxSpawnTime = dMaxSpawnTime;
+			this.dTotalRunTime = dTotalRunTime;
+			this.dMaxRunTime = dMaxRunTime;
+			this.lOutputBytes = lOutputBytes;
+			this.exitCodes = Collections.unmodifiableMap( exitCodes );
+		}
+
+		/**
+		 * Returns command name
+		 */
+		public String getName( ) {
+			return( sName );
+		}
+
+		/**
+		 * Returns number of executions
+		 */
+		public long getCount( ) {
+			return( lCount );
+		}
+
+		/**
+		 * Returns number of executions which failed to start or complete
+		 */
+		public long getFailed( ) {
+			return( lFailed );
+		}
+
+		/**
+		 * Returns number of executions terminated by timeout
+		 */
+		public long getTimedOut( ) {
+			return( lTimedOut );
+		}
+
+		/**
+		 * Returns average time to start the process or pass command to the worker, ms
+		 */
+		public double getAvgSpawnTime( ) {
+			return( dAvgSpawnTime );
+		}
+
+		/**
+		 * Returns maximum spawn time, ms
+		 */
+		public double getMaxSpawnTime( ) {
+			return( dMaxSpawnTime );
+		}
+
+		/**
+		 * Returns average run time, ms
+		 */
+		public double getAvgRunTime( ) {
+			return( lCount == 0 ? 0 : dTotalRunTime / lCount );
+		}
+
+		/**
+		 * Returns maximum run time, ms
+		 */
+		public double getMaxRunTime( ) {
+			return( dMaxRunTime );
+		}
+
+		/**
+		 * Returns total run time, ms
+		 */
+		public double getTotalRunTime( ) {
+			return( dTotalRunTime );
+		}
+
+		/**
+		 * Returns total number of output bytes of both channels
+		 */
+		public long getOutputBytes( ) {
+			return( lOutputBytes );
+		}
+
+		/**
+		 * Returns number of executions per exit code
+		 */
+		public Map< Integer, Long > getExitCodes( ) {
+			return( exitCodes );
+		}
+
+		/**
+		 * @see java.lang.Object#toString()
+		 */
+		@Override
+		public String toString( ) {
+			return(
+				String.format(
+					"%s: count=%d failed=%d timedOut=%d spawn avg/max=%.1f/%.1f ms run avg/max=%.1f/%.1f ms bytes=%d exit=%s",
+					sName, lCount, lFailed, lTimedOut, dAvgSpawnTime, dMaxSpawnTime,
+					getAvgRunTime( ), dMaxRunTime, lOutputBytes, exitCodes
+				)
+			);
+		}
+	}
+
+	/**
+	 * Per command counters
+	 */
+	private static class Accumulator {
+		private final LongAdder count = new LongAdder( );
+		private final LongAdder failed = new LongAdder( );
+		private final LongAdder timedOut = new LongAdder( );
+		private final LongAdder spawnTime = new LongAdder( );
+		private final LongAdder spawned = new LongAdder( );
+		private final AtomicLong maxSpawnTime = new AtomicLong( );
+		private final LongAdder runTime = new LongAdder( );
+		private final AtomicLong maxRunTime = new AtomicLong( );
+		private final LongAdder outputBytes = new LongAdder( );
+		private final Map< Integer, LongAdder > exitCodes = new ConcurrentHashMap< >( );
+
+		public void record( long lRunTime, ShellCmdExecutor.Output output ) {
+			count.increment( );
+			runTime.add( lRunTime );
+			maxRunTime.accumulateAndGet( lRunTime, Math::max );
+			if( output == null ) {
+				failed.increment( );
+				return;
+			}
+			if( output.isTimedOut( ) ) {
+				timedOut.increment( );
+			}
+			spawned.increment( );
+			spawnTime.add( output.getSpawnNanos( ) );
+			maxSpawnTime.accumulateAndGet( output.getSpawnNanos( ), Math::max );
+			outputBytes.add( output.getStdoutBytes( ) + output.getStderrBytes( ) );
+			exitCodes.computeIfAbsent( output.getExitCode( ), k -> new LongAdder( ) ).increment( );
+		}
+
+		public CommandStats snapshot( String sName ) {
+			long lSpawned = spawned.sum( );
+			Map< Integer, Long > codes = new TreeMap< >( );
+			for( Map.Entry< Integer, LongAdder > entry : exitCodes.entrySet( ) ) {
+				codes.put( entry.getKey( ), entry.getValue( ).sum( ) );
+			}
+			return(
+				new CommandStats(
+					sName,
+					count.sum( ),
+					failed.sum( ),
+					timedOut.sum( ),
+					lSpawned == 0 ? 0 : spawnTime.sum( ) / 1e6 / lSpawned,
+					maxSpawnTime.get( ) / 1e6,
+					runTime.sum( ) / 1e6,
+					maxRunTime.get( ) / 1e6,
+					outputBytes.sum( ),
+					codes
+				)
+			);
+		}
+	}
+}
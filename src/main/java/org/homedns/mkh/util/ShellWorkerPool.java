@@ -0,0 +1,420 @@
+/*
+ * Copyright 2026 Mikhail Khodonov.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.homedns.mkh.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.log4j.Logger;
+import org.homedns.mkh.util.ShellCmdExecutor.Channel;
+import org.homedns.mkh.util.ShellCmdExecutor.LineConsumer;
+import org.homedns.mkh.util.ShellCmdExecutor.Output;
+
+/**
+ * Pool of the long lived /bin/sh processes which execute commands sent over
+ * their standard input, so no process is forked per command. Every command
+ * runs in the subshell started in the specified working directory with
+ * standard input from /dev/null, so directory and environment changes made
+ * by the command do not leak into the next one. The end of the command
+ * output and its exit code are marked with the per worker random sentinel.
+ * Workers are checked before use when idle for a while and replaced after
+ * the specified number of commands, the worker whose command timed out is
+ * killed.
+ *
+ */
+public class ShellWorkerPool implements AutoCloseable {
+	private static final Logger LOG = Logger.getLogger( ShellWorkerPool.class );
+	/**
+	 * Idle time after which the worker is checked before use, ms
+	 */
+	public static final long HEALTH_CHECK_IDLE = 30000L;
+	private static final long HEALTH_CHECK_TIMEOUT = 5000L;
+
+	private final int iMaxCommands;
+	private final Semaphore permits;
+	private final Deque< Worker > idle = new ConcurrentLinkedDeque< >( );
+	private final AtomicInteger workers = new AtomicInteger( );
+	private volatile boolean bClosed;
+
+	/**
+	 * @param iMaxWorkers the maximum number of workers, commands over it wait for the free worker
+	 * @param iMaxCommands the number of commands after which the worker is replaced
+	 */
+	public ShellWorkerPool( int iMaxWorkers, int iMaxCommands ) {
+		if( Util.isWindows( ) ) {
+			throw new UnsupportedOperationException( "Shell workers are not supported on windows" );
+		}
+		permits = new Semaphore( iMaxWorkers, true );
+		this.iMaxCommands = iMaxCommands;
+	}
+
+	/**
+	 * Executes command on the free worker
+	 *
+	 * @param command the command to execute
+	 * @param bBuiltin the built in command flag, if false command is run from the working directory
+	 * @param workingDir the working directory
+	 * @param consumer the line consumer, may be null
+	 * @param lMaxCapture the maximum number of captured output bytes of both channels
+	 * @param lTimeout the timeout, ms, 0 means no timeout
+	 * @param lGracePeriod the time between the termination request to the timed out command and its forced kill, ms
+	 *
+	 * @return the command output
+	 *
+	 * @throws Exception
+	 */
+	public Output execute(
+		List< String > command,
+		boolean bBuiltin,
+		Path workingDir,
+		LineConsumer consumer,
+		long lMaxCapture,
+		long lTimeout,
+		long lGracePeriod
+	) throws Exception {
+		long lStart = System.nanoTime( );
+		StringBuilder sb = new StringBuilder( );
+		for( int i = 0; i < command.size( ); i++ ) {
+			if( i > 0 ) {
+				sb.append( ' ' );
+			}
+			quote( sb, i == 0 && !bBuiltin ? "./" + command.get( 0 ) : command.get( i ) );
+		}
+		LOG.debug( command );
+		permits.acquire( );
+		try {
+			Worker worker = acquire( );
+			boolean bReuse = false;
+			try {
+				Output output = worker.run( sb.toString( ), workingDir, consumer, lMaxCapture, lTimeout, lGracePeriod, lStart );
+				bReuse = !worker.bTimedOut && worker.iCommands < iMaxCommands;
+				return( output );
+			}
+			finally {
+				if( bReuse && !bClosed ) {
+					idle.push( worker );
+				} else {
+					retire( worker );
+				}
+			}
+		}
+		finally {
+			permits.release( );
+		}
+	}
+
+	/**
+	 * Returns number of running workers
+	 *
+	 * @return the number of workers
+	 */
+	public int getWorkerCount( ) {
+		return( workers.get( ) );
+	}
+
+	/**
+	 * Stops idle workers, busy ones are stopped when their commands complete
+	 *
+	 * @see java.lang.AutoCloseable#close()
+	 */
+	@Override
+	public void close( ) {
+		bClosed = true;
+		Worker worker;
+		while( ( worker = idle.poll( ) ) != null ) {
+			retire( worker );
+		}
+	}
+
+	/**
+	 * Returns healthy idle worker or starts the new one
+	 *
+	 * @return the worker
+	 *
+	 * @throws IOException
+	 */
+	private Worker acquire( ) throws IOException {
+		if( bClosed ) {
+			throw new IllegalStateException( "Pool is closed" );
+		}
+		Worker worker;
+		while( ( worker = idle.poll( ) ) != null ) {
+			if( worker.isHealthy( ) ) {
+				return( worker );
+			}
+			retire( worker );
+		}
+		worker = new Worker( );
+		workers.incrementAndGet( );
+		return( worker );
+	}
+
+	private void retire( Worker worker ) {
+		worker.close( );
+		workers.decrementAndGet( );
+	}
+
+	/**
+	 * Quotes argument for the shell
+	 *
+	 * @param sb the target string builder
+	 * @param sArg the argument
+	 */
+	static void quote( StringBuilder sb, String sArg ) {
+		sb.append( '\'' );
+		for( int i = 0; i < sArg.length( ); i++ ) {
+			char c = sArg.charAt( i );
+			if( c == '\'' ) {
+				sb.append( "'\\''" );
+			} else {
+				sb.append( c );
+			}
+		}
+		sb.append( '\'' );
+	}
+
+	/**
+	 * Shell coprocess
+	 */
+	private static class Worker {
+		// command states, the watchdog and the completion compete for the running one
+		private static final int RUNNING = 0;
+		private static final int DONE = 1;
+		private static final int TIMED_OUT = 2;
+
+		private final Process process;
+		private final OutputStream in;
+		private final InputStream out;
+		private final InputStream err;
+		private final byte[] sentinel;
+		private final String sSentinel;
+		private int iCommands;
+		private long lLastUsed = System.currentTimeMillis( );
+		// true if the last command timed out, the shell may be terminated
+		private boolean bTimedOut;
+
+		public Worker( ) throws IOException {
+			process = new ProcessBuilder( "/bin/sh" ).start( );
+			in = new BufferedOutputStream( process.getOutputStream( ) );
+			out = new BufferedInputStream( process.getInputStream( ) );
+			err = new BufferedInputStream( process.getErrorStream( ) );
+			sSentinel = "__shell_worker_" + UUID.randomUUID( ).toString( ).replace( "-", "" );
+			sentinel = sSentinel.getBytes( StandardCharsets.US_ASCII );
+		}
+
+		/**
+		 * Runs command
+		 *
+		 * @param sCommand the quoted command
+		 * @param workingDir the working directory
+		 * @param consumer the line consumer, may be null
+		 * @param lMaxCapture the maximum number of captured bytes
+		 * @param lTimeout the timeout, ms, 0 means no timeout
+		 * @param lGracePeriod the grace period before the forced kill, ms
+		 * @param lStart the execution start, ns
+		 *
+		 * @return the command output
+		 *
+		 * @throws Exception
+		 */
+		public Output run(
+			String sCommand,
+			Path workingDir,
+			LineConsumer consumer,
+			long lMaxCapture,
+			long lTimeout,
+			long lGracePeriod,
+			long lStart
+		) throws Exception {
+			iCommands++;
+			Output output = new Output( lMaxCapture );
+			StringBuilder sb = new StringBuilder( );
+			sb.append( "cd " );
+			quote( sb, workingDir.toString( ) );
+			sb.append( " && ( " ).append( sCommand ).append( " ) </dev/null; printf '\\n%s %d\\n' " ).append( sSentinel );
+			sb.append( " $?; printf '\\n%s\\n' " ).append( sSentinel ).append( " >&2\n" );
+			AtomicInteger state = new AtomicInteger( RUNNING );
+			ScheduledFuture< ? > watchdog = null;
+			if( lTimeout > 0 ) {
+				watchdog = ShellCmdExecutor.WATCHDOG.schedule( ( ) -> {
+					// the command may have completed and the shell may run the next one
+					if( state.compareAndSet( RUNNING, TIMED_OUT ) ) {
+						// the shell reports exit code of the terminated command
+						ShellCmdExecutor.terminate( process, lGracePeriod, false );
+					}
+				}, lTimeout, TimeUnit.MILLISECONDS );
+			}
+			Object lock = new Object( );
+			int iExitCode;
+			try {
+				in.write( sb.toString( ).getBytes( Charset.defaultCharset( ) ) );
+				in.flush( );
+				output.setSpawnNanos( System.nanoTime( ) - lStart );
+				Future< ? > stderr = ShellCmdExecutor.READERS.submit( ( ) -> {
+					read( err, Channel.STDERR, output, consumer, lock );
+					return( null );
+				} );
+				iExitCode = read( out, Channel.STDOUT, output, consumer, lock );
+				stderr.get( );
+				bTimedOut = !state.compareAndSet( RUNNING, DONE );
+			}
+			catch( Exception e ) {
+				bTimedOut = !state.compareAndSet( RUNNING, DONE );
+				ShellCmdExecutor.killTree( process );
+				if( !bTimedOut ) {
+					throw e;
+				}
+				iExitCode = process.waitFor( );
+			}
+			finally {
+				if( watchdog != null ) {
+					watchdog.cancel( false );
+				}
+				lLastUsed = System.currentTimeMillis( );
+			}
+			if( bTimedOut ) {
+				output.setTimedOut( );
+			}
+			output.complete( iExitCode, System.nanoTime( ) - lStart );
+			return( output );
+		}
+
+		/**
+		 * Returns true if the worker is alive and, after the long idle time, answers the check command
+		 *
+		 * @return true if the worker is healthy
+		 */
+		public boolean isHealthy( ) {
+			if( !process.isAlive( ) ) {
+				return( false );
+			}
+			if( System.currentTimeMillis( ) - lLastUsed < HEALTH_CHECK_IDLE ) {
+				return( true );
+			}
+			try {
+				Output output = run( ":", Paths.get( "/" ), null, 0, HEALTH_CHECK_TIMEOUT, 0, System.nanoTime( ) );
+				iCommands--;
+				return( !output.isTimedOut( ) && output.getExitCode( ) == 0 );
+			}
+			catch( Exception e ) {
+				LOG.debug( e.getMessage( ), e );
+				return( false );
+			}
+		}
+
+		/**
+		 * Stops worker
+		 */
+		public void close( ) {
+			try {
+				in.write( "exit\n".getBytes( StandardCharsets.US_ASCII ) );
+				in.flush( );
+				if( !process.waitFor( 1, TimeUnit.SECONDS ) ) {
+					ShellCmdExecutor.killTree( process );
+				}
+			}
+			catch( IOException | InterruptedException e ) {
+				ShellCmdExecutor.killTree( process );
+			}
+		}
+
+		/**
+		 * Reads command output until the sentinel line
+		 *
+		 * @param stream the worker output
+		 * @param channel the output channel
+		 * @param output the output to capture lines to
+		 * @param consumer the line consumer, may be null
+		 * @param lock the lock serializing consumer calls
+		 *
+		 * @return the exit code for the standard output, 0 for the standard error
+		 *
+		 * @throws IOException if the worker died
+		 */
+		private int read(
+			InputStream stream,
+			Channel channel,
+			Output output,
+			LineConsumer consumer,
+			Object lock
+		) throws IOException {
+			Charset charset = Charset.defaultCharset( );
+			byte[] line = new byte[ 256 ];
+			int iLength = 0;
+			// the sentinel is preceded by the line feed which ends the unterminated last line, if any
+			boolean bPending = false;
+			while( true ) {
+				int b = stream.read( );
+				if( b < 0 ) {
+					throw new IOException( "Shell worker terminated" );
+				}
+				if( b != '\n' ) {
+					if( iLength == line.length ) {
+						line = Arrays.copyOf( line, iLength << 1 );
+					}
+					line[ iLength++ ] = ( byte )b;
+					continue;
+				}
+				if( startsWith( line, iLength, sentinel ) ) {
+					if( channel == Channel.STDERR ) {
+						return( 0 );
+					}
+					String s = new String( line, sentinel.length, iLength - sentinel.length, StandardCharsets.US_ASCII );
+					return( Integer.parseInt( s.trim( ) ) );
+				}
+				if( bPending ) {
+					ShellCmdExecutor.emit( line, 0, 1, channel, output, consumer, lock, charset );
+				}
+				if( iLength == 0 ) {
+					bPending = true;
+				} else {
+					bPending = false;
+					ShellCmdExecutor.emit( line, iLength, iLength + 1, channel, output, consumer, lock, charset );
+				}
+				iLength = 0;
+			}
+		}
+
+		private static boolean startsWith( byte[] line, int iLength, byte[] prefix ) {
+			if( iLength < prefix.length ) {
+				return( false );
+			}
+			for( int i = 0; i < prefix.length; i++ ) {
+				if( line[ i ] != prefix[ i ] ) {
+					return( false );
+				}
+			}
+			return( true );
+		}
+	}
+}
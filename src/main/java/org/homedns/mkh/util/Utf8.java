@@ -0,0 +1,142 @@
+/*
+ * Copyright 2026 Mikhail Khodonov.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.homedns.mkh.util;
+
+/**
+ * UTF-8 encoder of char sequences into caller supplied byte arrays, long
+ * sequences are encoded chunk by chunk without the whole byte copy. Unpaired
+ * surrogates are encoded as '?' like {@link String#getBytes(java.nio.charset.Charset)} does.
+ *
+ */
+public final class Utf8 {
+	/**
+	 * Maximum number of bytes per char, surrogate pair takes 4 bytes for 2 chars
+	 */
+	public static final int MAX_BYTES_PER_CHAR = 3;
+
+	private Utf8( ) {
+	}
+
+	/**
+	 * Returns end of the chunk which starts at the specified index, surrogate
+	 * pair is not split between chunks
+	 *
+	 * @param s the char sequence
+	 * @param iFrom the chunk start
+	 * @param iMaxChars the maximum chunk length, at least 2
+	 *
+	 * @return the chunk end, exclusive
+	 */
+	public static int chunkEnd( CharSequence s, int iFrom, int iMaxChars ) {
+		int iLength = s.length( );
+		int iTo = iLength - iFrom > iMaxChars ? iFrom + iMaxChars : iLength;
+		if( iTo < iLength && iTo - iFrom > 1 && Character.isHighSurrogate( s.charAt( iTo - 1 ) ) ) {
+			iTo--;
+		}
+		return( iTo );
+	}
+
+	/**
+	 * Encodes specified chars into the target array
+	 *
+	 * @param s the char sequence
+	 * @param iFrom the first char index
+	 * @param iTo the end index, exclusive, see {@link #chunkEnd(CharSequence, int, int)}
+	 * @param dst the target array, must have room for
+	 *        {@link #MAX_BYTES_PER_CHAR} * (iTo - iFrom) bytes
+	 * @param iDstOffset the target offset
+	 *
+	 * @return the number of bytes written
+	 */
+	public static int encode( CharSequence s, int iFrom, int iTo, byte[] dst, int iDstOffset ) {
+		int iDst = iDstOffset;
+		for( int i = iFrom; i < iTo; i++ ) {
+			char c = s.charAt( i );
+			if( c < 0x80 ) {
+				dst[ iDst++ ] = ( byte )c;
+			} else if( c < 0x800 ) {
+				dst[ iDst++ ] = ( byte )( 0xC0 | ( c >> 6 ) );
+				dst[ iDst++ ] = ( byte )( 0x80 | ( c & 0x3F ) );
+			} else if( Character.isSurrogate( c ) ) {
+				int iCp = codePointAt( s, i, iTo );
+				if( iCp < 0 ) {
+					dst[ iDst++ ] = ( byte )'?';
+				} else {
+					dst[ iDst++ ] = ( byte )( 0xF0 | ( iCp >> 18 ) );
+					dst[ iDst++ ] = ( byte )( 0x80 | ( ( iCp >> 12 ) & 0x3F ) );
+					dst[ iDst++ ] = ( byte )( 0x80 | ( ( iCp >> 6 ) & 0x3F ) );
+					dst[ iDst++ ] = ( byte )( 0x80 | ( iCp & 0x3F ) );
+					i++;
+				}
+			} else {
+				dst[ iDst++ ] = ( byte )( 0xE0 | ( c >> 12 ) );
+				dst[ iDst++ ] = ( byte )( 0x80 | ( ( c >> 6 ) & 0x3F ) );
+				dst[ iDst++ ] = ( byte )( 0x80 | ( c & 0x3F ) );
+			}
+		}
+		return( iDst - iDstOffset );
+	}
+
+	/**
+	 * Returns number of bytes specified char sequence takes in UTF-8 encoding
+	 *
+	 * @param s the char sequence
+	 *
+	 * @return the UTF-8 length
+	 */
+	public static int length( CharSequence s ) {
+		int iLength = s.length( );
+		int iResult = iLength;
+		for( int i = 0; i < iLength; i++ ) {
+			char c = s.charAt( i );
+			if( c < 0x80 ) {
+				continue;
+			} else if( c < 0x800 ) {
+				iResult += 1;
+			} else if( Character.isSurrogate( c ) ) {
+				if( codePointAt( s, i, iLength ) >= 0 ) {
+					// 2 chars -> 4 bytes
+					iResult += 2;
+					i++;
+				}
+			} else {
+				iResult += 2;
+			}
+		}
+		return( iResult );
+	}
+
+	/**
+	 * Returns code point of the surrogate pair at the specified index or -1 if surrogate is unpaired
+	 *
+	 * @param s the char sequence
+	 * @param i the index of the surrogate char
+	 * @param iTo the end index, exclusive
+	 *
+	 * @return the code point or -1
+	 */
+	private static int codePointAt( CharSequence s, int i, int iTo ) {
+		char c = s.charAt( i );
+		if( Character.isHighSurrogate( c ) && i + 1 < iTo ) {
+			char low = s.charAt( i + 1 );
+			if( Character.isLowSurrogate( low ) ) {
+				return( Character.toCodePoint( c, low ) );
+			}
+		}
+		return( -1 );
+	}
+}
@@ -20,32 +20,22 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
-import java.net.InetAddress;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.security.MessageDigest;
 import java.sql.Timestamp;
-import java.text.DateFormat;
-import java.time.OffsetDateTime;
-import java.time.ZoneId;
-import java.time.ZoneOffset;
-import java.time.ZonedDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.Arrays;
-import java.util.Date;
 import java.util.List;
 import java.util.Locale;
-import java.util.Random;
 import java.util.ResourceBundle;
 import java.util.UUID;
 import java.util.regex.Pattern;
-import org.apache.commons.codec.DecoderException;
-import org.apache.commons.codec.binary.Hex;
-import org.apache.commons.net.ntp.NTPUDPClient;
-import org.apache.commons.net.ntp.TimeInfo;
-import org.apache.log4j.Logger;
+import org.homedns.mkh.util.hash.DigestService;
+import org.homedns.mkh.util.hash.FileHasher;
+import org.homedns.mkh.util.hash.HashAlgorithm;
+import org.homedns.mkh.util.time.DateFormats;
+import org.homedns.mkh.util.time.NtpClock;
+import org.homedns.mkh.util.time.Timestamps;
 import com.google.gson.Gson;
 
 /**
@@ -53,7 +43,6 @@ import com.google.gson.Gson;
  *
  */
 public class Util {
-	private static final Logger LOG = Logger.getLogger( Util.class );
 	public static final Pattern NUM_PATTERN = Pattern.compile( "-?\\d+(\\.\\d+)?" );
 	public static final Pattern TIMESTAMP_PATTERN = Pattern.compile( "(^(((\\d\\d)(([02468][048])|([13579][26]))-02-29)|(((\\d\\d)(\\d\\d)))-((((0\\d)|(1[0-2]))-((0\\d)|(1\\d)|(2[0-8])))|((((0[13578])|(1[02]))-31)|(((0[1,3-9])|(1[0-2]))-(29|30)))))\\s(([01]\\d|2[0-3]):([0-5]\\d):([0-5]\\d))$)" ); 
 	public static final Pattern EMAIL_PATTERN = Pattern.compile( "^([\\w-]+(?:\\.[\\w-]+)*)@((?:[\\w-]+\\.)*\\w[\\w-]{0,66})\\.([a-z]{2,6}(?:\\.[a-z]{2})?)$" );
@@ -66,18 +55,16 @@ public class Util {
 	public static final Pattern JSON_FILENAME_PATTERN = Pattern.compile( "([a-zA-Z0-9\\s_\\\\.\\-\\(\\):])+(.json)$" );
 	public static final Pattern PORT_PATTERN = Pattern.compile( "^([0-9]{1,4}|[1-5][0-9]{4}|6[0-4][0-9]{3}|65[0-4][0-9]{2}|655[0-2][0-9]|6553[0-5])$" );
 
-	private static final String HEXES = "0123456789abcdef";
 	private static final String CHARS = "0,1,2,3,4,5,6,7,8,9,A,B,C,D,E,F,G,H,I,J,K,L,M,N,O,P,Q,R,S,T,U,V,W,X,Y,Z,a,b,c,d,e,f,g,h,i,j,k,l,m,n,o,p,q,r,s,t,u,v,w,x,y,z,!,?,_,@,#,$,%,&,*,(,),-,+,=,1,2,3,4,5,6,7,8,9,0";
+	private static final RandomStringGenerator RANDOM_STRING = new RandomStringGenerator( CHARS.replace( ",", "" ), false );
 	
 	/**
-	 * Returns current local date/time as a string
+	 * Returns current local date/time as a string, see {@link DateFormats#now()}
 	 * 
 	 * @return the current date/time in short format
 	 */
 	public static String now( ) {
-		return( 
-			DateFormat.getDateTimeInstance( DateFormat.SHORT, DateFormat.SHORT ).format( new Date( ) ) 
-		);
+		return( DateFormats.now( ) );
 	}
 
 	/**
@@ -88,25 +75,16 @@ public class Util {
 	}
 	
 	/**
-	 * Returns timestamp from specified ntp server
+	 * Returns timestamp from specified ntp server. The first call for the host
+	 * takes one sample from the server, then the clock is kept in sync in
+	 * background and the call does no I/O, see {@link NtpClock}.
 	 * 
 	 * @param ntpHost the ntp server host
 	 * 
 	 * @return the ntp server timestamp or if ntp server unreachable local computer timestamp
 	 */
 	public static Timestamp getNtpTimestamp( String ntpHost ) {
-		Timestamp timestamp = null;
-		try {
-			NTPUDPClient timeClient = new NTPUDPClient( );
-			timeClient.setDefaultTimeout( 5000 );
-			TimeInfo timeInfo = timeClient.getTime( InetAddress.getByName( ntpHost ) );
-			timestamp = new Timestamp( timeInfo.getMessage( ).getTransmitTimeStamp( ).getTime( ) );
-		} 
-		catch ( Exception e ) {
-			LOG.warn( "NTP server " + ntpHost + " unreachable. Using local machine time." );
-			timestamp = new Timestamp( ( new Date( ) ).getTime( ) );
-		}
-		return( timestamp );
+		return( NtpClock.getClock( ntpHost ).getTimestamp( ) );
 	}
 	
 	/**
@@ -118,8 +96,7 @@ public class Util {
 	 * @return the timestamp
 	 */
 	public static Timestamp getZoneTimestamp( Timestamp timestamp, String sTimeZone ) {
-		ZonedDateTime zdt = ZonedDateTime.ofInstant( timestamp.toInstant( ), ZoneId.of( sTimeZone ) );
-		return( Timestamp.valueOf( zdt.format( DateTimeFormatter.ofPattern( "uuuu-MM-dd HH:mm:ss.nnnnnnnnn" ) ) ) );
+		return( Timestamps.toZone( timestamp, sTimeZone ) );
 	}
 
 	/**
@@ -128,8 +105,7 @@ public class Util {
 	 * @return the timestamp
 	 */
 	public static Timestamp getTimestamp( ) {
-		OffsetDateTime utc = OffsetDateTime.now( ZoneOffset.UTC );
-		return( Timestamp.valueOf( utc.format( DateTimeFormatter.ofPattern( "uuuu-MM-dd HH:mm:ss.nnnnnnnnn" ) ) ) );
+		return( Timestamps.utc( ) );
 	}
 	
 	/**
@@ -193,7 +169,7 @@ public class Util {
 	 * @return the hex string
 	 */
 	public static String toHex( String s ) {
-        return( toHex( s.getBytes( StandardCharsets.UTF_8 ) ) );
+        return( HexCodec.encodeUtf8( s ) );
 	}
 
 	/**
@@ -204,8 +180,7 @@ public class Util {
 	 * @return the hex string
 	 */
 	public static String toHex( byte[] ab ) {
-		char[] chars = Hex.encodeHex( ab );
-        return( String.valueOf( chars ) );
+        return( HexCodec.encode( ab ) );
 	}
 	
 	/**
@@ -220,15 +195,11 @@ public class Util {
 		if( ab == null ) {
 			return null;
 		}
-		final StringBuilder hex = new StringBuilder( 2 * ab.length );
-		for( final byte b : ab ) {
-			hex.append( HEXES.charAt( ( b & 0xF0 ) >> 4 ) ).append( HEXES.charAt( ( b & 0x0F ) ) );
-		}
-		return hex.toString( );
+		return( HexCodec.encode( ab ) );
 	}
 	
 	/**
-	 * Returns specified string hash digest using SHA-1 algorithm
+	 * Returns specified string hash digest using SHA-1 algorithm, string is encoded in UTF-8
 	 * 
 	 * @param s the source string
 	 * 
@@ -237,12 +208,11 @@ public class Util {
 	 * @throws Exception
 	 */
 	public static String hashCode( String s ) throws Exception {
-		MessageDigest md = MessageDigest.getInstance( "SHA-1" );
-		return( toHex( md.digest( s.getBytes( ) ) ) );
+		return( DigestService.hash( s, HashAlgorithm.SHA_1 ) );
 	}
 	
 	/**
-	 * Returns specified file hash 
+	 * Returns specified file hash using SHA-1 algorithm, file is streamed so it may be of any size
 	 * 
 	 * @param path the file path
 	 * 
@@ -251,9 +221,7 @@ public class Util {
 	 * @throws Exception
 	 */
 	public static String hashCode( Path path ) throws Exception {
-		MessageDigest md = MessageDigest.getInstance( "SHA-1" );
-		byte[] data = Files.readAllBytes( path );
-		return( toHex( md.digest( data ) ) );
+		return( FileHasher.hash( path, HashAlgorithm.SHA_1 ) );
 	}
 	
 	/**
@@ -298,14 +266,7 @@ public class Util {
 	 * @return the result string
 	 */
 	public static String fromHex( String sHex, Charset charset ) {
-        String s = "";
-        try {
-            byte[] ab = Hex.decodeHex( sHex );
-            s = new String( ab, charset );
-        } catch( DecoderException e ) {
-            throw new IllegalArgumentException( "Invalid Hex format." );
-        }
-        return( s );
+        return( new String( HexCodec.decode( sHex ), charset ) );
 	}
 
 	/**
@@ -316,13 +277,7 @@ public class Util {
 	 * @return the byte array
 	 */
 	public static byte[] fromHexString( String sHex ) {
-		byte[] ab;
-        try {
-            ab = Hex.decodeHex( sHex );
-        } catch( DecoderException e ) {
-            throw new IllegalArgumentException( "Invalid Hex format." );
-        }
-        return( ab );
+        return( HexCodec.decode( sHex ) );
 	}
 
 	/**
@@ -428,16 +383,10 @@ public class Util {
 	 * @return random string
 	 */
 	public static String getRandomString( int iLength ) {
-		String[] as = CHARS.split( "," );
 		if( iLength <= 0 ) {
 			return( null );
 		}
-		StringBuffer sb = new StringBuffer( );
-		Random random = new Random( );
-		for( int iIndex = 0; iIndex < iLength; iIndex++ ) {
-			sb.append( as[ random.nextInt( as.length ) ] );
-		}
-		return( sb.toString( ) );
+		return( RANDOM_STRING.next( iLength ) );
 	}
 	
 	/**
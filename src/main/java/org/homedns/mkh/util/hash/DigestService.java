@@ -0,0 +1,137 @@
+/*
+ * Copyright 2026 Mikhail Khodonov.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.homedns.mkh.util.hash;
+
+import java.util.List;
+import org.homedns.mkh.util.HexCodec;
+import org.homedns.mkh.util.Utf8;
+
+/**
+ * Hashes char sequences using per thread cached hashers. Chars are encoded to
+ * UTF-8 in a small per thread scratch buffer which is fed to the hasher, so no
+ * intermediate string copy or byte array of the whole input is created.
+ *
+ */
+public class DigestService {
+	private static final int SCRATCH_SIZE = 4096;
+
+	private static final ThreadLocal< Context > CONTEXT = ThreadLocal.withInitial( Context::new );
+
+	private DigestService( ) {
+	}
+
+	/**
+	 * Returns specified char sequence digest, chars are encoded in UTF-8
+	 *
+	 * @param s the source char sequence
+	 * @param algorithm the hash algorithm
+	 *
+	 * @return the digest
+	 */
+	public static byte[] digest( CharSequence s, HashAlgorithm algorithm ) {
+		Hasher hasher = CONTEXT.get( ).update( s, algorithm );
+		return( hasher.digest( ) );
+	}
+
+	/**
+	 * Returns specified char sequence hash, chars are encoded in UTF-8
+	 *
+	 * @param s the source char sequence
+	 * @param algorithm the hash algorithm
+	 *
+	 * @return the hash as hex string
+	 */
+	public static String hash( CharSequence s, HashAlgorithm algorithm ) {
+		Context context = CONTEXT.get( );
+		int iLength = context.update( s, algorithm ).digest( context.digest, 0 );
+		return( HexCodec.encode( context.digest, 0, iLength ) );
+	}
+
+	/**
+	 * Hashes specified char sequences and writes hex results one after another into the target array.
+	 * Every result takes 2 * {@link HashAlgorithm#getDigestLength()} chars.
+	 *
+	 * @param list the source char sequences
+	 * @param algorithm the hash algorithm
+	 * @param dst the target array
+	 * @param iDstOffset the target offset
+	 *
+	 * @return the number of chars written
+	 */
+	public static int hashAll( List< ? extends CharSequence > list, HashAlgorithm algorithm, char[] dst, int iDstOffset ) {
+		int iHexLength = algorithm.getDigestLength( ) << 1;
+		if( iDstOffset < 0 || dst.length - iDstOffset < ( long )iHexLength * list.size( ) ) {
+			throw new IndexOutOfBoundsException( "Target array is too small." );
+		}
+		Context context = CONTEXT.get( );
+		int iDst = iDstOffset;
+		for( CharSequence s : list ) {
+			int iLength = context.update( s, algorithm ).digest( context.digest, 0 );
+			iDst += HexCodec.encode( context.digest, 0, iLength, dst, iDst );
+		}
+		return( iDst - iDstOffset );
+	}
+
+	/**
+	 * Hashes specified char sequences into the new array
+	 *
+	 * @param list the source char sequences
+	 * @param algorithm the hash algorithm
+	 *
+	 * @return the hex results one after another, each takes 2 * {@link HashAlgorithm#getDigestLength()} chars
+	 */
+	public static char[] hashAll( List< ? extends CharSequence > list, HashAlgorithm algorithm ) {
+		char[] ac = new char[ ( algorithm.getDigestLength( ) << 1 ) * list.size( ) ];
+		hashAll( list, algorithm, ac, 0 );
+		return( ac );
+	}
+
+	/**
+	 * Per thread hashers and buffers
+	 */
+	private static class Context {
+		private final Hasher[] hashers = new Hasher[ HashAlgorithm.values( ).length ];
+		private final byte[] scratch = new byte[ SCRATCH_SIZE ];
+		private final byte[] digest = new byte[ 64 ];
+
+		/**
+		 * Resets hasher for specified algorithm and feeds specified chars into it
+		 *
+		 * @param s the source char sequence
+		 * @param algorithm the hash algorithm
+		 *
+		 * @return the hasher
+		 */
+		public Hasher update( CharSequence s, HashAlgorithm algorithm ) {
+			Hasher hasher = hashers[ algorithm.ordinal( ) ];
+			if( hasher == null ) {
+				hasher = algorithm.newHasher( );
+				hashers[ algorithm.ordinal( ) ] = hasher;
+			} else {
+				hasher.reset( );
+			}
+			int iLength = s.length( );
+			int i = 0;
+			while( i < iLength ) {
+				int iTo = Utf8.chunkEnd( s, i, SCRATCH_SIZE / Utf8.MAX_BYTES_PER_CHAR );
+				hasher.update( scratch, 0, Utf8.encode( s, i, iTo, scratch, 0 ) );
+				i = iTo;
+			}
+			return( hasher );
+		}
+	}
+}
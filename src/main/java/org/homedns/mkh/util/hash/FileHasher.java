@@ -0,0 +1,284 @@
+/*
+ * Copyright 2026 Mikhail Khodonov.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.homedns.mkh.util.hash;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import org.homedns.mkh.util.HexCodec;
+
+/**
+ * Memory bounded file hashing. Files are streamed through a per thread reusable
+ * direct buffer, so memory usage does not depend on the file size.
+ *
+ */
+public class FileHasher {
+	public static final int BUFFER_SIZE = 64 * 1024;
+	public static final long DEFAULT_CHUNK_SIZE = 64L * 1024 * 1024;
+
+	private static final ThreadLocal< ByteBuffer > BUFFER = ThreadLocal.withInitial(
+		( ) -> ByteBuffer.allocateDirect( BUFFER_SIZE )
+	);
+
+	private FileHasher( ) {
+	}
+
+	/**
+	 * Returns specified file hash
+	 *
+	 * @param path the file path
+	 * @param algorithm the hash algorithm
+	 *
+	 * @return the hash code as hex string
+	 *
+	 * @throws IOException
+	 */
+	public static String hash( Path path, HashAlgorithm algorithm ) throws IOException {
+		return( HexCodec.encode( digest( path, algorithm ) ) );
+	}
+
+	/**
+	 * Returns specified file digest
+	 *
+	 * @param path the file path
+	 * @param algorithm the hash algorithm
+	 *
+	 * @return the digest
+	 *
+	 * @throws IOException
+	 */
+	public static byte[] digest( Path path, HashAlgorithm algorithm ) throws IOException {
+		try( FileChannel channel = FileChannel.open( path, StandardOpenOption.READ ) ) {
+			Hasher hasher = algorithm.newHasher( );
+			update( hasher, channel, 0, channel.size( ) );
+			return( hasher.digest( ) );
+		}
+	}
+
+	/**
+	 * Hashes specified files in parallel using specified pool
+	 *
+	 * @param paths the files to hash
+	 * @param algorithm the hash algorithm
+	 * @param pool the fork/join pool
+	 *
+	 * @return the file path to the hash hex string map, in the input order
+	 *
+	 * @throws IOException
+	 */
+	public static Map< Path, String > hash( List< Path > paths, HashAlgorithm algorithm, ForkJoinPool pool ) throws IOException {
+		List< ForkJoinTask< String > > tasks = new ArrayList< >( paths.size( ) );
+		for( Path path : paths ) {
+			tasks.add( pool.submit( ( ) -> {
+				try {
+					return( hash( path, algorithm ) );
+				}
+				catch( IOException e ) {
+					// pool wraps checked exceptions into the plain runtime exception
+					throw new UncheckedIOException( e );
+				}
+			} ) );
+		}
+		Map< Path, String > result = new LinkedHashMap< >( );
+		for( int i = 0; i < paths.size( ); i++ ) {
+			result.put( paths.get( i ), join( tasks.get( i ) ) );
+		}
+		return( result );
+	}
+
+	/**
+	 * Hashes specified files in parallel using common fork/join pool
+	 *
+	 * @param paths the files to hash
+	 * @param algorithm the hash algorithm
+	 *
+	 * @return the file path to the hash hex string map, in the input order
+	 *
+	 * @throws IOException
+	 */
+	public static Map< Path, String > hash( List< Path > paths, HashAlgorithm algorithm ) throws IOException {
+		return( hash( paths, algorithm, ForkJoinPool.commonPool( ) ) );
+	}
+
+	/**
+	 * Returns tree hash of the specified file. The file is split into chunks of
+	 * the specified size, the chunks are hashed in parallel and the result is the
+	 * hash of the concatenated chunk digests. Note the tree hash differs from the
+	 * plain file hash, both sides must use the same chunk size to compare results.
+	 *
+	 * @param path the file path
+	 * @param algorithm the hash algorithm
+	 * @param lChunkSize the chunk size
+	 * @param pool the fork/join pool
+	 *
+	 * @return the tree hash as hex string
+	 *
+	 * @throws IOException
+	 */
+	public static String treeHash( Path path, HashAlgorithm algorithm, long lChunkSize, ForkJoinPool pool ) throws IOException {
+		if( lChunkSize <= 0 ) {
+			throw new IllegalArgumentException( "Invalid chunk size: " + lChunkSize );
+		}
+		try( FileChannel channel = FileChannel.open( path, StandardOpenOption.READ ) ) {
+			long lSize = channel.size( );
+			int iChunks = ( int )Math.max( 1, ( lSize + lChunkSize - 1 ) / lChunkSize );
+			byte[][] digests = join( pool.submit( new ChunkTask( channel, algorithm, lChunkSize, lSize, 0, iChunks ) ) );
+			Hasher hasher = algorithm.newHasher( );
+			for( byte[] ab : digests ) {
+				hasher.update( ab, 0, ab.length );
+			}
+			return( HexCodec.encode( hasher.digest( ) ) );
+		}
+	}
+
+	/**
+	 * Returns tree hash of the specified file using default chunk size and common fork/join pool
+	 *
+	 * @param path the file path
+	 * @param algorithm the hash algorithm
+	 *
+	 * @return the tree hash as hex string
+	 *
+	 * @throws IOException
+	 */
+	public static String treeHash( Path path, HashAlgorithm algorithm ) throws IOException {
+		return( treeHash( path, algorithm, DEFAULT_CHUNK_SIZE, ForkJoinPool.commonPool( ) ) );
+	}
+
+	/**
+	 * Updates hasher with specified channel region using positional reads, channel position is not changed
+	 *
+	 * @param hasher the hasher
+	 * @param channel the file channel
+	 * @param lPosition the region start
+	 * @param lLength the region length
+	 *
+	 * @throws IOException
+	 */
+	private static void update( Hasher hasher, FileChannel channel, long lPosition, long lLength ) throws IOException {
+		ByteBuffer buffer = BUFFER.get( );
+		long lEnd = lPosition + lLength;
+		long lPos = lPosition;
+		while( lPos < lEnd ) {
+			buffer.clear( );
+			if( lEnd - lPos < buffer.capacity( ) ) {
+				buffer.limit( ( int )( lEnd - lPos ) );
+			}
+			int iRead = channel.read( buffer, lPos );
+			if( iRead < 0 ) {
+				break;
+			}
+			lPos += iRead;
+			buffer.flip( );
+			hasher.update( buffer );
+		}
+	}
+
+	/**
+	 * Waits for the task and unwraps I/O failure, the pool may wrap the task
+	 * exception again when it is joined from the other thread
+	 *
+	 * @param task the task
+	 *
+	 * @return the task result
+	 *
+	 * @throws IOException
+	 */
+	private static < T > T join( ForkJoinTask< T > task ) throws IOException {
+		try {
+			return( task.join( ) );
+		}
+		catch( RuntimeException e ) {
+			for( Throwable cause = e.getCause( ); cause != null; cause = cause.getCause( ) ) {
+				if( cause instanceof IOException ) {
+					throw ( IOException )cause;
+				}
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Hashes range of file chunks splitting it in halves
+	 */
+	private static class ChunkTask extends RecursiveTask< byte[][] > {
+		private static final long serialVersionUID = 1L;
+
+		private final FileChannel channel;
+		private final HashAlgorithm algorithm;
+		private final long lChunkSize;
+		private final long lSize;
+		private final int iFrom;
+		private final int iTo;
+
+		/**
+		 * @param channel the file channel
+		 * @param algorithm the hash algorithm
+		 * @param lChunkSize the chunk size
+		 * @param lSize the file size
+		 * @param iFrom the first chunk index, inclusive
+		 * @param iTo the last chunk index, exclusive
+		 */
+		public ChunkTask( FileChannel channel, HashAlgorithm algorithm, long lChunkSize, long lSize, int iFrom, int iTo ) {
+			this.channel = channel;
+			this.algorithm = algorithm;
+			this.lChunkSize = lChunkSize;
+			this.lSize = lSize;
+			this.iFrom = iFrom;
+			this.iTo = iTo;
+		}
+
+		/**
+		 * @see java.util.concurrent.RecursiveTask#compute()
+		 */
+		@Override
+		protected byte[][] compute( ) {
+			byte[][] result = new byte[ iTo - iFrom ][];
+			if( iTo - iFrom == 1 ) {
+				long lPosition = iFrom * lChunkSize;
+				Hasher hasher = algorithm.newHasher( );
+				try {
+					update( hasher, channel, lPosition, Math.min( lChunkSize, lSize - lPosition ) );
+				}
+				catch( IOException e ) {
+					throw new UncheckedIOException( e );
+				}
+				result[ 0 ] = hasher.digest( );
+			} else {
+				int iMiddle = ( iFrom + iTo ) >>> 1;
+				ChunkTask left = new ChunkTask( channel, algorithm, lChunkSize, lSize, iFrom, iMiddle );
+				ChunkTask right = new ChunkTask( channel, algorithm, lChunkSize, lSize, iMiddle, iTo );
+				left.fork( );
+				byte[][] rightResult = right.compute( );
+				byte[][] leftResult = left.join( );
+				System.arraycopy( leftResult, 0, result, 0, leftResult.length );
+				System.arraycopy( rightResult, 0, result, leftResult.length, rightResult.length );
+			}
+			return( result );
+		}
+	}
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2026 Mikhail Khodonov.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.homedns.mkh.util.hash;
+
+import java.nio.ByteBuffer;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Supported hash algorithms
+ *
+ */
+public enum HashAlgorithm {
+	SHA_1( "SHA-1", 20 ),
+	SHA_256( "SHA-256", 32 ),
+	/**
+	 * Fast non-cryptographic 64 bit hash
+	 */
+	XXHASH64( null, 8 );
+
+	private final String sJcaName;
+	private final int iDigestLength;
+
+	/**
+	 * @param sJcaName the JCA message digest name or null if algorithm is implemented locally
+	 * @param iDigestLength the digest length in bytes
+	 */
+	private HashAlgorithm( String sJcaName, int iDigestLength ) {
+		this.sJcaName = sJcaName;
+		this.iDigestLength = iDigestLength;
+	}
+
+	/**
+	 * Returns digest length
+	 *
+	 * @return the digest length in bytes
+	 */
+	public int getDigestLength( ) {
+		return( iDigestLength );
+	}
+
+	/**
+	 * Returns JCA message digest name
+	 *
+	 * @return the message digest name or null
+	 */
+	public String getJcaName( ) {
+		return( sJcaName );
+	}
+
+	/**
+	 * Returns true if algorithm is backed by {@link java.security.MessageDigest}
+	 *
+	 * @return true or false
+	 */
+	public boolean isMessageDigest( ) {
+		return( sJcaName != null );
+	}
+
+	/**
+	 * Creates new hasher instance
+	 *
+	 * @return the hasher
+	 */
+	public Hasher newHasher( ) {
+		if( !isMessageDigest( ) ) {
+			return( new XxHash64( ) );
+		}
+		try {
+			final MessageDigest md = MessageDigest.getInstance( sJcaName );
+			return( new Hasher( ) {
+				@Override
+				public void update( ByteBuffer buffer ) {
+					md.update( buffer );
+				}
+
+				@Override
+				public void update( byte[] ab, int iOffset, int iLength ) {
+					md.update( ab, iOffset, iLength );
+				}
+
+				@Override
+				public byte[] digest( ) {
+					return( md.digest( ) );
+				}
+
+				@Override
+				public int digest( byte[] ab, int iOffset ) {
+					try {
+						return( md.digest( ab, iOffset, ab.length - iOffset ) );
+					}
+					catch( DigestException e ) {
+						throw new IllegalArgumentException( e );
+					}
+				}
+
+				@Override
+				public void reset( ) {
+					md.reset( );
+				}
+			} );
+		}
+		catch( NoSuchAlgorithmException e ) {
+			// every java platform is required to support SHA-1 and SHA-256
+			throw new IllegalStateException( e );
+		}
+	}
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2026 Mikhail Khodonov.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.homedns.mkh.util.hash;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Streaming hash function interface
+ *
+ */
+public interface Hasher {
+
+	/**
+	 * Updates hash with remaining bytes of the specified buffer, buffer position is advanced to its limit
+	 *
+	 * @param buffer the input buffer
+	 */
+	public void update( ByteBuffer buffer );
+
+	/**
+	 * Updates hash with specified bytes region
+	 *
+	 * @param ab the input bytes
+	 * @param iOffset the region offset
+	 * @param iLength the region length
+	 */
+	public default void update( byte[] ab, int iOffset, int iLength ) {
+		update( ByteBuffer.wrap( ab, iOffset, iLength ) );
+	}
+
+	/**
+	 * Completes hash computation and resets hasher
+	 *
+	 * @return the hash value
+	 */
+	public byte[] digest( );
+
+	/**
+	 * Completes hash computation into specified array and resets hasher
+	 *
+	 * @param ab the target array
+	 * @param iOffset the target offset
+	 *
+	 * @return the number of bytes written
+	 */
+	public default int digest( byte[] ab, int iOffset ) {
+		byte[] digest = digest( );
+		System.arraycopy( digest, 0, ab, iOffset, digest.length );
+		return( digest.length );
+	}
+
+	/**
+	 * Resets hasher for further use
+	 */
+	public void reset( );
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2026 Mikhail Khodonov.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.homedns.mkh.util.hash;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Streaming xxHash64 implementation. The digest is the 64 bit hash value in
+ * big endian (canonical) byte order. Not thread safe.
+ *
+ */
+public class XxHash64 implements Hasher {
+	private static final long P1 = 0x9E3779B185EBCA87L;
+	private static final long P2 = 0xC2B2AE3D27D4EB4FL;
+	private static final long P3 = 0x165667B19E3779F9L;
+	private static final long P4 = 0x85EBCA77C2B2AE63L;
+	private static final long P5 = 0x27D4EB2F165667C5L;
+	private static final int STRIPE = 32;
+
+	private final long lSeed;
+	private final ByteBuffer pending = ByteBuffer.allocate( STRIPE ).order( ByteOrder.LITTLE_ENDIAN );
+	private long v1;
+	private long v2;
+	private long v3;
+	private long v4;
+	private long lTotal;
+
+	public XxHash64( ) {
+		this( 0L );
+	}
+
+	/**
+	 * @param lSeed the hash seed
+	 */
+	public XxHash64( long lSeed ) {
+		this.lSeed = lSeed;
+		reset( );
+	}
+
+	/**
+	 * @see org.homedns.mkh.util.hash.Hasher#update(java.nio.ByteBuffer)
+	 */
+	@Override
+	public void update( ByteBuffer buffer ) {
+		ByteOrder order = buffer.order( );
+		buffer.order( ByteOrder.LITTLE_ENDIAN );
+		try {
+			lTotal += buffer.remaining( );
+			if( pending.position( ) > 0 ) {
+				while( pending.hasRemaining( ) && buffer.hasRemaining( ) ) {
+					pending.put( buffer.get( ) );
+				}
+				if( pending.hasRemaining( ) ) {
+					return;
+				}
+				pending.flip( );
+				stripe( pending );
+				pending.clear( );
+			}
+			while( buffer.remaining( ) >= STRIPE ) {
+				stripe( buffer );
+			}
+			pending.put( buffer );
+		}
+		finally {
+			buffer.order( order );
+		}
+	}
+
+	/**
+	 * @see org.homedns.mkh.util.hash.Hasher#digest()
+	 */
+	@Override
+	public byte[] digest( ) {
+		long lHash = getValue( );
+		reset( );
+		return( ByteBuffer.allocate( 8 ).putLong( lHash ).array( ) );
+	}
+
+	/**
+	 * @see org.homedns.mkh.util.hash.Hasher#digest(byte[], int)
+	 */
+	@Override
+	public int digest( byte[] ab, int iOffset ) {
+		long lHash = getValue( );
+		reset( );
+		for( int i = 7; i >= 0; i-- ) {
+			ab[ iOffset + i ] = ( byte )lHash;
+			lHash >>>= 8;
+		}
+		return( 8 );
+	}
+
+	/**
+	 * Returns current hash value, hasher state is not changed
+	 *
+	 * @return the hash value
+	 */
+	public long getValue( ) {
+		long h;
+		if( lTotal >= STRIPE ) {
+			h = Long.rotateLeft( v1, 1 ) + Long.rotateLeft( v2, 7 ) + Long.rotateLeft( v3, 12 ) + Long.rotateLeft( v4, 18 );
+			h = merge( h, v1 );
+			h = merge( h, v2 );
+			h = merge( h, v3 );
+			h = merge( h, v4 );
+		} else {
+			h = lSeed + P5;
+		}
+		h += lTotal;
+		int iLength = pending.position( );
+		int i = 0;
+		for( ; i + 8 <= iLength; i += 8 ) {
+			h ^= round( 0, pending.getLong( i ) );
+			h = Long.rotateLeft( h, 27 ) * P1 + P4;
+		}
+		if( i + 4 <= iLength ) {
+			h ^= ( pending.getInt( i ) & 0xFFFFFFFFL ) * P1;
+			h = Long.rotateLeft( h, 23 ) * P2 + P3;
+			i += 4;
+		}
+		for( ; i < iLength; i++ ) {
+			h ^= ( pending.get( i ) & 0xFF ) * P5;
+			h = Long.rotateLeft( h, 11 ) * P1;
+		}
+		h ^= h >>> 33;
+		h *= P2;
+		h ^= h >>> 29;
+		h *= P3;
+		h ^= h >>> 32;
+		return( h );
+	}
+
+	/**
+	 * @see org.homedns.mkh.util.hash.Hasher#reset()
+	 */
+	@Override
+	public void reset( ) {
+		v1 = lSeed + P1 + P2;
+		v2 = lSeed + P2;
+		v3 = lSeed;
+		v4 = lSeed - P1;
+		lTotal = 0;
+		pending.clear( );
+	}
+
+	/**
+	 * Processes one 32 bytes stripe, buffer must be in little endian order
+	 *
+	 * @param buffer the buffer
+	 */
+	private void stripe( ByteBuffer buffer ) {
+		v1 = round( v1, buffer.getLong( ) );
+		v2 = round( v2, buffer.getLong( ) );
+		v3 = round( v3, buffer.getLong( ) );
+		v4 = round( v4, buffer.getLong( ) );
+	}
+
+	private static long round( long lAcc, long lInput ) {
+		lAcc += lInput * P2;
+		lAcc = Long.rotateLeft( lAcc, 31 );
+		return( lAcc * P1 );
+	}
+
+	private static long merge( long lAcc, long lValue ) {
+		lAcc ^= round( 0, lValue );
+		return( lAcc * P1 + P4 );
+	}
+}
@@ -0,0 +1,278 @@
+/*
+ * Copyright 2026 Mikhail Khodonov.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.homedns.mkh.util.id;
+
+import java.util.UUID;
+
+/**
+ * Compact representations of the 64 and 128 bit identifiers: binary, base62 and
+ * Crockford base32. Both text forms are fixed length and keep the numeric sort
+ * order of the identifiers.
+ *
+ */
+public class IdCodec {
+	public static final int BINARY_LENGTH = 16;
+	public static final int BASE62_LENGTH = 22;
+	public static final int BASE62_LONG_LENGTH = 11;
+	public static final int CROCKFORD_LENGTH = 26;
+	public static final int CROCKFORD_LONG_LENGTH = 13;
+
+	private static final char[] BASE62 = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz".toCharArray( );
+	private static final char[] CROCKFORD = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray( );
+	private static final byte[] BASE62_DECODE = new byte[ 128 ];
+	private static final byte[] CROCKFORD_DECODE = new byte[ 128 ];
+	static {
+		for( int i = 0; i < 128; i++ ) {
+			BASE62_DECODE[ i ] = -1;
+			CROCKFORD_DECODE[ i ] = -1;
+		}
+		for( int i = 0; i < BASE62.length; i++ ) {
+			BASE62_DECODE[ BASE62[ i ] ] = ( byte )i;
+		}
+		for( int i = 0; i < CROCKFORD.length; i++ ) {
+			CROCKFORD_DECODE[ CROCKFORD[ i ] ] = ( byte )i;
+			CROCKFORD_DECODE[ Character.toLowerCase( CROCKFORD[ i ] ) ] = ( byte )i;
+		}
+		// Crockford aliases
+		CROCKFORD_DECODE[ 'O' ] = CROCKFORD_DECODE[ 'o' ] = 0;
+		CROCKFORD_DECODE[ 'I' ] = CROCKFORD_DECODE[ 'i' ] = 1;
+		CROCKFORD_DECODE[ 'L' ] = CROCKFORD_DECODE[ 'l' ] = 1;
+	}
+
+	private IdCodec( ) {
+	}
+
+	/**
+	 * Writes specified uuid as 16 big endian bytes into the target array
+	 *
+	 * @param uuid the uuid
+	 * @param dst the target array
+	 * @param iOffset the target offset
+	 *
+	 * @return the number of bytes written
+	 */
+	public static int toBytes( UUID uuid, byte[] dst, int iOffset ) {
+		putLong( uuid.getMostSignificantBits( ), dst, iOffset );
+		putLong( uuid.getLeastSignificantBits( ), dst, iOffset + 8 );
+		return( BINARY_LENGTH );
+	}
+
+	/**
+	 * Returns specified uuid as 16 big endian bytes
+	 *
+	 * @param uuid the uuid
+	 *
+	 * @return the byte array
+	 */
+	public static byte[] toBytes( UUID uuid ) {
+		byte[] ab = new byte[ BINARY_LENGTH ];
+		toBytes( uuid, ab, 0 );
+		return( ab );
+	}
+
+	/**
+	 * Reads uuid from 16 big endian bytes
+	 *
+	 * @param ab the source array
+	 * @param iOffset the source offset
+	 *
+	 * @return the uuid
+	 */
+	public static UUID fromBytes( byte[] ab, int iOffset ) {
+		return( new UUID( getLong( ab, iOffset ), getLong( ab, iOffset + 8 ) ) );
+	}
+
+	/**
+	 * Returns specified uuid as 22 chars base62 string
+	 *
+	 * @param uuid the uuid
+	 *
+	 * @return the base62 string
+	 */
+	public static String toBase62( UUID uuid ) {
+		char[] ac = new char[ BASE62_LENGTH ];
+		toBase62( uuid.getMostSignificantBits( ), uuid.getLeastSignificantBits( ), ac, 0 );
+		return( new String( ac ) );
+	}
+
+	/**
+	 * Writes specified 128 bit value as 22 base62 chars into the target array
+	 *
+	 * @param lMsb the most significant bits
+	 * @param lLsb the least significant bits
+	 * @param dst the target array
+	 * @param iOffset the target offset
+	 *
+	 * @return the number of chars written
+	 */
+	public static int toBase62( long lMsb, long lLsb, char[] dst, int iOffset ) {
+		// 32 bit limbs, most significant first
+		long[] limbs = { lMsb >>> 32, lMsb & 0xFFFFFFFFL, lLsb >>> 32, lLsb & 0xFFFFFFFFL };
+		for( int i = BASE62_LENGTH - 1; i >= 0; i-- ) {
+			long lRem = 0;
+			for( int j = 0; j < limbs.length; j++ ) {
+				long lCur = ( lRem << 32 ) | limbs[ j ];
+				limbs[ j ] = lCur / 62;
+				lRem = lCur % 62;
+			}
+			dst[ iOffset + i ] = BASE62[ ( int )lRem ];
+		}
+		return( BASE62_LENGTH );
+	}
+
+	/**
+	 * Parses uuid from 22 chars base62 string
+	 *
+	 * @param s the base62 string
+	 *
+	 * @return the uuid
+	 */
+	public static UUID fromBase62( CharSequence s ) {
+		if( s.length( ) != BASE62_LENGTH ) {
+			throw new IllegalArgumentException( "Invalid base62 id: " + s );
+		}
+		long[] limbs = new long[ 4 ];
+		for( int i = 0; i < BASE62_LENGTH; i++ ) {
+			long lCarry = decode( BASE62_DECODE, s.charAt( i ), s );
+			for( int j = limbs.length - 1; j >= 0; j-- ) {
+				long lCur = limbs[ j ] * 62 + lCarry;
+				limbs[ j ] = lCur & 0xFFFFFFFFL;
+				lCarry = lCur >>> 32;
+			}
+			if( lCarry != 0 ) {
+				throw new IllegalArgumentException( "Invalid base62 id: " + s );
+			}
+		}
+		return( new UUID( ( limbs[ 0 ] << 32 ) | limbs[ 1 ], ( limbs[ 2 ] << 32 ) | limbs[ 3 ] ) );
+	}
+
+	/**
+	 * Returns specified value as 11 chars base62 string
+	 *
+	 * @param lValue the value, treated as unsigned
+	 *
+	 * @return the base62 string
+	 */
+	public static String toBase62( long lValue ) {
+		char[] ac = new char[ BASE62_LONG_LENGTH ];
+		for( int i = BASE62_LONG_LENGTH - 1; i >= 0; i-- ) {
+			ac[ i ] = BASE62[ ( int )Long.remainderUnsigned( lValue, 62 ) ];
+			lValue = Long.divideUnsigned( lValue, 62 );
+		}
+		return( new String( ac ) );
+	}
+
+	/**
+	 * Returns specified uuid as 26 chars Crockford base32 string (ULID text form)
+	 *
+	 * @param uuid the uuid
+	 *
+	 * @return the Crockford base32 string
+	 */
+	public static String toCrockford( UUID uuid ) {
+		char[] ac = new char[ CROCKFORD_LENGTH ];
+		toCrockford( uuid.getMostSignificantBits( ), uuid.getLeastSignificantBits( ), ac, 0 );
+		return( new String( ac ) );
+	}
+
+	/**
+	 * Writes specified 128 bit value as 26 Crockford base32 chars into the target array
+	 *
+	 * @param lMsb the most significant bits
+	 * @param lLsb the least significant bits
+	 * @param dst the target array
+	 * @param iOffset the target offset
+	 *
+	 * @return the number of chars written
+	 */
+	public static int toCrockford( long lMsb, long lLsb, char[] dst, int iOffset ) {
+		for( int i = 0; i < CROCKFORD_LENGTH; i++ ) {
+			// bit position of the char lowest bit counted from the value lowest bit
+			int iShift = ( CROCKFORD_LENGTH - 1 - i ) * 5;
+			int iDigit;
+			if( iShift >= 64 ) {
+				iDigit = ( int )( lMsb >>> ( iShift - 64 ) );
+			} else if( iShift > 59 ) {
+				iDigit = ( int )( ( lLsb >>> iShift ) | ( lMsb << ( 64 - iShift ) ) );
+			} else {
+				iDigit = ( int )( lLsb >>> iShift );
+			}
+			dst[ iOffset + i ] = CROCKFORD[ iDigit & 0x1F ];
+		}
+		return( CROCKFORD_LENGTH );
+	}
+
+	/**
+	 * Parses uuid from 26 chars Crockford base32 string, case insensitive
+	 *
+	 * @param s the Crockford base32 string
+	 *
+	 * @return the uuid
+	 */
+	public static UUID fromCrockford( CharSequence s ) {
+		if( s.length( ) != CROCKFORD_LENGTH || decode( CROCKFORD_DECODE, s.charAt( 0 ), s ) > 7 ) {
+			throw new IllegalArgumentException( "Invalid Crockford id: " + s );
+		}
+		long lMsb = 0;
+		long lLsb = 0;
+		for( int i = 0; i < CROCKFORD_LENGTH; i++ ) {
+			long lDigit = decode( CROCKFORD_DECODE, s.charAt( i ), s );
+			lMsb = ( lMsb << 5 ) | ( lLsb >>> 59 );
+			lLsb = ( lLsb << 5 ) | lDigit;
+		}
+		return( new UUID( lMsb, lLsb ) );
+	}
+
+	/**
+	 * Returns specified value as 13 chars Crockford base32 string
+	 *
+	 * @param lValue the value, treated as unsigned
+	 *
+	 * @return the Crockford base32 string
+	 */
+	public static String toCrockford( long lValue ) {
+		char[] ac = new char[ CROCKFORD_LONG_LENGTH ];
+		for( int i = CROCKFORD_LONG_LENGTH - 1; i >= 0; i-- ) {
+			ac[ i ] = CROCKFORD[ ( int )lValue & 0x1F ];
+			lValue >>>= 5;
+		}
+		return( new String( ac ) );
+	}
+
+	private static int decode( byte[] table, char c, CharSequence s ) {
+		int iDigit = c < 128 ? table[ c ] : -1;
+		if( iDigit < 0 ) {
+			throw new IllegalArgumentException( "Invalid id: " + s );
+		}
+		return( iDigit );
+	}
+
+	private static void putLong( long lValue, byte[] dst, int iOffset ) {
+		for( int i = 7; i >= 0; i-- ) {
+			dst[ iOffset + i ] = ( byte )lValue;
+			lValue >>>= 8;
+		}
+	}
+
+	private static long getLong( byte[] ab, int iOffset ) {
+		long lValue = 0;
+		for( int i = 0; i < 8; i++ ) {
+			lValue = ( lValue << 8 ) | ( ab[ iOffset + i ] & 0xFF );
+		}
+		return( lValue );
+	}
+}
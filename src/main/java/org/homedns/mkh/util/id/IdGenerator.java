@@ -0,0 +1,127 @@
+/*
+ * Copyright 2026 Mikhail Khodonov.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.homedns.mkh.util.id;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * High throughput identifier generator. Unlike {@link UUID#randomUUID()} it
+ * never touches {@link java.security.SecureRandom}, so the ids are unique but
+ * not unpredictable and must not be used as secrets.
+ *
+ */
+public class IdGenerator {
+	private static final int SEQUENCE_BITS = 40;
+	private static final long SEQUENCE_MASK = ( 1L << SEQUENCE_BITS ) - 1;
+	private static final int COUNTER_BITS = 12;
+	private static final int COUNTER_MAX = ( 1 << COUNTER_BITS ) - 1;
+
+	private static final AtomicLong SLOT = new AtomicLong( );
+	private static final ThreadLocal< State > STATE = ThreadLocal.withInitial( State::new );
+
+	private IdGenerator( ) {
+	}
+
+	/**
+	 * Returns time ordered RFC 9562 version 7 uuid: 48 bit unix millis, 12 bit
+	 * counter seeded randomly each millisecond and 62 random bits. Uuids made
+	 * by one thread are strictly increasing.
+	 *
+	 * @return the uuid
+	 */
+	public static UUID uuid7( ) {
+		State state = STATE.get( );
+		ThreadLocalRandom random = ThreadLocalRandom.current( );
+		state.tick( random );
+		long lMsb = ( state.lMillis << 16 ) | 0x7000L | state.iCounter;
+		long lLsb = ( random.nextLong( ) & 0x3FFFFFFFFFFFFFFFL ) | 0x8000000000000000L;
+		return( new UUID( lMsb, lLsb ) );
+	}
+
+	/**
+	 * Returns time ordered id in ULID text form: 26 Crockford base32 chars,
+	 * 48 bit unix millis followed by 80 bits where the first 12 are per thread
+	 * counter like in {@link #uuid7()}.
+	 *
+	 * @return the ulid string
+	 */
+	public static String ulid( ) {
+		State state = STATE.get( );
+		ThreadLocalRandom random = ThreadLocalRandom.current( );
+		state.tick( random );
+		long lMsb = ( state.lMillis << 16 ) | ( ( long )state.iCounter << 4 ) | ( random.nextInt( ) & 0x0F );
+		char[] ac = new char[ IdCodec.CROCKFORD_LENGTH ];
+		IdCodec.toCrockford( lMsb, random.nextLong( ), ac, 0 );
+		return( new String( ac ) );
+	}
+
+	/**
+	 * Returns next process wide unique 64 bit id. Each thread reserves its own
+	 * slot once and then just increments a thread local counter, so the call
+	 * never contends. Ids are unique within the running JVM only.
+	 *
+	 * @return the id
+	 */
+	public static long nextLong( ) {
+		State state = STATE.get( );
+		if( ( state.lSequence & SEQUENCE_MASK ) == SEQUENCE_MASK ) {
+			state.lSequence = SLOT.getAndIncrement( ) << SEQUENCE_BITS;
+		}
+		return( ++state.lSequence );
+	}
+
+	/**
+	 * Returns next process wide unique id as 11 chars base62 string
+	 *
+	 * @return the id string
+	 *
+	 * @see #nextLong()
+	 */
+	public static String nextString( ) {
+		return( IdCodec.toBase62( nextLong( ) ) );
+	}
+
+	/**
+	 * Per thread generator state
+	 */
+	private static class State {
+		private long lMillis;
+		private int iCounter;
+		private long lSequence = SLOT.getAndIncrement( ) << SEQUENCE_BITS;
+
+		/**
+		 * Advances time and counter, on counter overflow borrows next millisecond
+		 *
+		 * @param random the random generator
+		 */
+		public void tick( ThreadLocalRandom random ) {
+			long lNow = System.currentTimeMillis( );
+			if( lNow > lMillis ) {
+				lMillis = lNow;
+				// leave upper half of the counter as headroom for same millisecond ids
+				iCounter = random.nextInt( ) & ( COUNTER_MAX >> 1 );
+			} else if( iCounter < COUNTER_MAX ) {
+				iCounter++;
+			} else {
+				lMillis++;
+				iCounter = 0;
+			}
+		}
+	}
+}
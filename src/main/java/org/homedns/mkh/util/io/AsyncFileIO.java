@@ -0,0 +1,317 @@
+/*
+ * Copyright 2026 Mikhail Khodonov.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.homedns.mkh.util.io;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.homedns.mkh.util.Callback;
+
+/**
+ * Asynchronous counterparts of {@link TextReader} and {@link TextWriter}.
+ * Blocking calls run on the dedicated I/O thread pool, the number of calls
+ * running at once is limited per file store (device), excess calls wait in
+ * the queue without holding a thread.
+ *
+ */
+public class AsyncFileIO {
+	/**
+	 * Default number of concurrent calls per file store
+	 */
+	public static final int DEFAULT_LIMIT = 8;
+
+	private static final AtomicInteger THREAD_COUNT = new AtomicInteger( );
+	private static final ExecutorService EXECUTOR = new ThreadPoolExecutor(
+		0, Integer.MAX_VALUE, 60L, TimeUnit.SECONDS, new SynchronousQueue< >( ), r -> {
+			Thread thread = new Thread( r, "async-io-" + THREAD_COUNT.incrementAndGet( ) );
+			thread.setDaemon( true );
+			return( thread );
+		}
+	);
+	private static final Object UNKNOWN_STORE = new Object( );
+	private static final Map< Object, Limiter > LIMITERS = new ConcurrentHashMap< >( );
+	private static final Map< Path, Object > STORES = new ConcurrentHashMap< >( );
+	private static volatile int iDefaultLimit = DEFAULT_LIMIT;
+
+	/**
+	 * Blocking I/O call
+	 */
+	@FunctionalInterface
+	public interface IOCall< T > {
+		public T call( ) throws Exception;
+	}
+
+	private AsyncFileIO( ) {
+	}
+
+	/**
+	 * Reads content from specified file, line breaks are removed
+	 *
+	 * @param path the file path
+	 *
+	 * @return the future content
+	 *
+	 * @see TextReader#read(Path)
+	 */
+	public static CompletableFuture< String > read( Path path ) {
+		return( submit( path, ( ) -> TextReader.read( path ) ) );
+	}
+
+	/**
+	 * Reads content from specified file as is
+	 *
+	 * @param path the file path
+	 * @param defaultCharset the charset to use if file has no byte order mark
+	 *
+	 * @return the future content
+	 *
+	 * @see TextReader#readAll(Path, Charset)
+	 */
+	public static CompletableFuture< String > readAll( Path path, Charset defaultCharset ) {
+		return( submit( path, ( ) -> TextReader.readAll( path, defaultCharset ) ) );
+	}
+
+	/**
+	 * Reads content from specified file, line breaks are removed
+	 *
+	 * @param path the file path
+	 * @param callback the callback to call with the content
+	 */
+	public static void read( Path path, Callback< String > callback ) {
+		notify( read( path ), callback );
+	}
+
+	/**
+	 * Writes char sequence into the file in UTF-8 encoding, the content must
+	 * not be changed until the future is completed
+	 *
+	 * @param path the file path
+	 * @param content the content to write
+	 * @param mode the write mode
+	 *
+	 * @return the future completed when the content is written
+	 *
+	 * @see TextWriter#write(Path, CharSequence, TextWriter.Mode)
+	 */
+	public static CompletableFuture< Void > write( Path path, CharSequence content, TextWriter.Mode mode ) {
+		return( write( path, out -> out.append( content ), mode ) );
+	}
+
+	/**
+	 * Writes content produced by the callback into the file in UTF-8 encoding,
+	 * the producer is called on the I/O thread
+	 *
+	 * @param path the file path
+	 * @param content the content producer
+	 * @param mode the write mode
+	 *
+	 * @return the future completed when the content is written
+	 */
+	public static CompletableFuture< Void > write( Path path, TextWriter.Content content, TextWriter.Mode mode ) {
+		return(
+			submit( path, ( ) -> {
+				TextWriter.write( path, content, mode );
+				return( null );
+			} )
+		);
+	}
+
+	/**
+	 * Writes char sequence into the file in UTF-8 encoding
+	 *
+	 * @param path the file path
+	 * @param content the content to write
+	 * @param mode the write mode
+	 * @param callback the callback to call on completion
+	 */
+	public static void write( Path path, CharSequence content, TextWriter.Mode mode, Callback< Void > callback ) {
+		notify( write( path, content, mode ), callback );
+	}
+
+	/**
+	 * Runs blocking call on the I/O pool within the concurrency limit of the file store
+	 *
+	 * @param path the file path which file store is limited
+	 * @param call the call
+	 *
+	 * @return the future result
+	 */
+	public static < T > CompletableFuture< T > submit( Path path, IOCall< T > call ) {
+		return( getLimiter( path ).submit( call ) );
+	}
+
+	/**
+	 * Sets concurrency limit for the file store of the specified path
+	 *
+	 * @param path the path
+	 * @param iLimit the maximum number of concurrent calls
+	 */
+	public static void setLimit( Path path, int iLimit ) {
+		if( iLimit < 1 ) {
+			throw new IllegalArgumentException( "Invalid limit: " + iLimit );
+		}
+		getLimiter( path ).iLimit = iLimit;
+	}
+
+	/**
+	 * Sets default concurrency limit for the file stores without explicit limit
+	 *
+	 * @param iLimit the maximum number of concurrent calls
+	 */
+	public static void setDefaultLimit( int iLimit ) {
+		if( iLimit < 1 ) {
+			throw new IllegalArgumentException( "Invalid limit: " + iLimit );
+		}
+		iDefaultLimit = iLimit;
+	}
+
+	/**
+	 * Passes future outcome to the callback, callback failure is passed to its
+	 * {@link Callback#onFailure(Throwable)}
+	 *
+	 * @param future the future
+	 * @param callback the callback
+	 */
+	public static < T > void notify( CompletableFuture< T > future, Callback< T > callback ) {
+		future.whenComplete( ( result, e ) -> {
+			if( e != null ) {
+				callback.onFailure( e instanceof CompletionException && e.getCause( ) != null ? e.getCause( ) : e );
+				return;
+			}
+			try {
+				callback.onSuccess( result );
+			}
+			catch( Exception ex ) {
+				callback.onFailure( ex );
+			}
+		} );
+	}
+
+	/**
+	 * Returns limiter of the path file store
+	 *
+	 * @param path the path
+	 *
+	 * @return the limiter
+	 */
+	private static Limiter getLimiter( Path path ) {
+		Path dir = path.toAbsolutePath( ).getParent( );
+		Object store = dir == null ? UNKNOWN_STORE : STORES.get( dir );
+		if( store == null ) {
+			try {
+				store = Files.getFileStore( Files.exists( path ) ? path : dir );
+			}
+			catch( IOException e ) {
+				store = UNKNOWN_STORE;
+			}
+			if( store instanceof FileStore ) {
+				STORES.put( dir, store );
+			}
+		}
+		return( LIMITERS.computeIfAbsent( store, k -> new Limiter( iDefaultLimit ) ) );
+	}
+
+	/**
+	 * Runs calls with bounded concurrency, pending calls are queued
+	 */
+	private static class Limiter {
+		private final Queue< Runnable > pending = new ArrayDeque< >( );
+		private volatile int iLimit;
+		private int iActive;
+
+		/**
+		 * @param iLimit the maximum number of concurrent calls
+		 */
+		public Limiter( int iLimit ) {
+			this.iLimit = iLimit;
+		}
+
+		/**
+		 * Runs call or queues it if limit is reached
+		 *
+		 * @param call the call
+		 *
+		 * @return the future result
+		 */
+		public < T > CompletableFuture< T > submit( IOCall< T > call ) {
+			CompletableFuture< T > future = new CompletableFuture< >( );
+			Runnable task = ( ) -> {
+				try {
+					future.complete( call.call( ) );
+				}
+				catch( Throwable e ) {
+					future.completeExceptionally( e );
+				}
+				finally {
+					release( );
+				}
+			};
+			boolean bRun;
+			synchronized( this ) {
+				bRun = iActive < iLimit;
+				if( bRun ) {
+					iActive++;
+				} else {
+					pending.add( task );
+				}
+			}
+			if( bRun ) {
+				execute( task );
+			}
+			return( future );
+		}
+
+		/**
+		 * Starts next pending call if any
+		 */
+		private void release( ) {
+			Runnable next;
+			synchronized( this ) {
+				next = iActive <= iLimit ? pending.poll( ) : null;
+				if( next == null ) {
+					iActive--;
+				}
+			}
+			if( next != null ) {
+				execute( next );
+			}
+		}
+
+		private void execute( Runnable task ) {
+			try {
+				EXECUTOR.execute( task );
+			}
+			catch( RuntimeException e ) {
+				// task completes its future and releases the slot
+				task.run( );
+			}
+		}
+	}
+}
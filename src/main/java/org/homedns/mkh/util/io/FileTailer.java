@@ -0,0 +1,424 @@
+/*
+ * Copyright 2026 Mikhail Khodonov.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.homedns.mkh.util.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import org.apache.log4j.Logger;
+import org.homedns.mkh.util.Event;
+import org.homedns.mkh.util.Notification;
+import org.homedns.mkh.util.Publisher;
+
+/**
+ * Follows text file as it grows and publishes new lines as {@link LinesEvent}
+ * through the notification. Changes are detected with the watch service on
+ * the file directory with the periodic check as a fallback. Only new bytes
+ * are read, the incomplete last line is kept until its line feed arrives.
+ * When the file is rotated (replaced by the new file) the rest of the old
+ * file is read and the new one is followed from its start, when the file is
+ * truncated (copy and truncate rotation) it is followed from its start too.
+ * Line breaks are not included in the lines, charset must encode line feed
+ * as the single 0x0A byte.
+ * Notification may deliver events concurrently, subscribers which need the
+ * file order should use {@link LinesEvent#getSequence()}.
+ *
+ */
+public class FileTailer implements Publisher, AutoCloseable {
+	private static final Logger LOG = Logger.getLogger( FileTailer.class );
+
+	/**
+	 * Default maximum number of lines per event
+	 */
+	public static final int DEFAULT_BATCH_SIZE = 1000;
+	/**
+	 * Default fallback check interval, ms
+	 */
+	public static final long DEFAULT_CHECK_INTERVAL = 1000L;
+
+	private final Path path;
+	private final Charset charset;
+	private final Notification notification;
+	private final int iBatchSize;
+	private final long lCheckInterval;
+	private final ByteBuffer buffer = ByteBuffer.allocateDirect( TextReader.CHUNK_SIZE );
+	private final WatchService watcher;
+	private final Thread thread;
+	private FileChannel channel;
+	private Object fileKey;
+	private long lPosition;
+	private byte[] line = new byte[ 256 ];
+	private int iLineLength;
+	private boolean bSkipLine;
+	private long lSequence;
+	private volatile boolean bClosed;
+
+	/**
+	 * Follows UTF-8 file from its current end
+	 *
+	 * @param path the file path
+	 * @param notification the notification to publish events through
+	 *
+	 * @throws IOException
+	 */
+	public FileTailer( Path path, Notification notification ) throws IOException {
+		this( path, StandardCharsets.UTF_8, notification, true, DEFAULT_BATCH_SIZE, DEFAULT_CHECK_INTERVAL );
+	}
+
+	/**
+	 * @param path the file path
+	 * @param charset the file charset
+	 * @param notification the notification to publish events through
+	 * @param bFromEnd if true existing content is skipped, otherwise it is published
+	 * @param iBatchSize the maximum number of lines per event
+	 * @param lCheckInterval the fallback check interval, ms
+	 *
+	 * @throws IOException
+	 */
+	public FileTailer(
+		Path path,
+		Charset charset,
+		Notification notification,
+		boolean bFromEnd,
+		int iBatchSize,
+		long lCheckInterval
+	) throws IOException {
+		if( charset.encode( "\n" ).remaining( ) != 1 ) {
+			throw new IllegalArgumentException( "Unsupported charset: " + charset );
+		}
+		this.path = path.toAbsolutePath( );
+		this.charset = charset;
+		this.notification = notification;
+		this.iBatchSize = iBatchSize;
+		this.lCheckInterval = lCheckInterval;
+		if( open( ) && bFromEnd ) {
+			lPosition = channel.size( );
+			// the line in progress is not complete unless the file ends with the line feed
+			bSkipLine = !isLineStart( lPosition );
+		}
+		watcher = this.path.getFileSystem( ).newWatchService( );
+		this.path.getParent( ).register(
+			watcher,
+			StandardWatchEventKinds.ENTRY_CREATE,
+			StandardWatchEventKinds.ENTRY_MODIFY,
+			StandardWatchEventKinds.ENTRY_DELETE
+		);
+		thread = new Thread( this::run, "tail-" + this.path.getFileName( ) );
+		thread.setDaemon( true );
+	}
+
+	/**
+	 * Starts following
+	 *
+	 * @return this tailer
+	 */
+	public FileTailer start( ) {
+		thread.start( );
+		return( this );
+	}
+
+	/**
+	 * Stops following and releases the file
+	 *
+	 * @see java.lang.AutoCloseable#close()
+	 */
+	@Override
+	public void close( ) throws IOException {
+		bClosed = true;
+		watcher.close( );
+		try {
+			if( thread.isAlive( ) ) {
+				thread.join( );
+			}
+		}
+		catch( InterruptedException e ) {
+			Thread.currentThread( ).interrupt( );
+		}
+		if( channel != null ) {
+			channel.close( );
+		}
+	}
+
+	/**
+	 * Returns followed file path
+	 *
+	 * @return the file path
+	 */
+	public Path getPath( ) {
+		return( path );
+	}
+
+	/**
+	 * @see org.homedns.mkh.util.Publisher#publish(org.homedns.mkh.util.Event)
+	 */
+	@Override
+	public void publish( Event event ) throws Exception {
+		notification.publish( event, this );
+	}
+
+	/**
+	 * Follow loop
+	 */
+	private void run( ) {
+		while( !bClosed ) {
+			try {
+				check( );
+				// any directory change triggers the check, events themselves are not needed
+				watcher.poll( lCheckInterval, TimeUnit.MILLISECONDS );
+				while( true ) {
+					WatchKey key = watcher.poll( );
+					if( key == null ) {
+						break;
+					}
+					key.pollEvents( );
+					key.reset( );
+				}
+			}
+			catch( ClosedWatchServiceException | InterruptedException e ) {
+				break;
+			}
+			catch( Exception e ) {
+				LOG.error( e.getMessage( ), e );
+			}
+		}
+	}
+
+	/**
+	 * Reads and publishes new lines, handles rotation and truncation
+	 *
+	 * @throws Exception
+	 */
+	private void check( ) throws Exception {
+		if( channel == null && !open( ) ) {
+			return;
+		}
+		List< String > lines = new ArrayList< >( );
+		Object currentKey = getFileKey( );
+		if( currentKey != null && !currentKey.equals( fileKey ) ) {
+			// rotated, the rest of the old file is read first
+			readNew( lines );
+			flushLine( lines );
+			channel.close( );
+			channel = null;
+			open( );
+		} else if( channel.size( ) < lPosition ) {
+			// truncated, lines written since are at the file start
+			lPosition = 0;
+			iLineLength = 0;
+			bSkipLine = false;
+		}
+		if( channel != null ) {
+			readNew( lines );
+		}
+		publish( lines );
+	}
+
+	/**
+	 * Reads bytes after the current position
+	 *
+	 * @param lines the list to add complete lines to
+	 *
+	 * @throws Exception
+	 */
+	private void readNew( List< String > lines ) throws Exception {
+		while( true ) {
+			buffer.clear( );
+			int iRead = channel.read( buffer, lPosition );
+			if( iRead <= 0 ) {
+				break;
+			}
+			lPosition += iRead;
+			buffer.flip( );
+			while( buffer.hasRemaining( ) ) {
+				byte b = buffer.get( );
+				if( b == '\n' ) {
+					if( bSkipLine ) {
+						bSkipLine = false;
+						iLineLength = 0;
+					} else {
+						flushLine( lines );
+					}
+					if( lines.size( ) >= iBatchSize ) {
+						publish( lines );
+					}
+				} else {
+					if( iLineLength == line.length ) {
+						line = Arrays.copyOf( line, iLineLength << 1 );
+					}
+					line[ iLineLength++ ] = b;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns true if the position is the start of the line
+	 *
+	 * @param lPos the position
+	 *
+	 * @return true if the position is 0 or the previous byte is the line feed
+	 *
+	 * @throws IOException
+	 */
+	private boolean isLineStart( long lPos ) throws IOException {
+		if( lPos == 0 ) {
+			return( true );
+		}
+		ByteBuffer b = ByteBuffer.allocate( 1 );
+		return( channel.read( b, lPos - 1 ) == 1 && b.get( 0 ) == '\n' );
+	}
+
+	/**
+	 * Adds line in progress to the list
+	 *
+	 * @param lines the lines list
+	 */
+	private void flushLine( List< String > lines ) {
+		if( iLineLength == 0 ) {
+			return;
+		}
+		int iLength = line[ iLineLength - 1 ] == '\r' ? iLineLength - 1 : iLineLength;
+		if( !bSkipLine ) {
+			lines.add( new String( line, 0, iLength, charset ) );
+		}
+		iLineLength = 0;
+		bSkipLine = false;
+	}
+
+	/**
+	 * Publishes lines as the event and clears the list
+	 *
+	 * @param lines the lines
+	 *
+	 * @throws Exception
+	 */
+	private void publish( List< String > lines ) throws Exception {
+		if( !lines.isEmpty( ) ) {
+			publish( new LinesEvent( path, lSequence++, new ArrayList< >( lines ) ) );
+			lines.clear( );
+		}
+	}
+
+	/**
+	 * Opens file if it exists
+	 *
+	 * @return true if file is opened
+	 *
+	 * @throws IOException
+	 */
+	private boolean open( ) throws IOException {
+		try {
+			channel = FileChannel.open( path, StandardOpenOption.READ );
+		}
+		catch( NoSuchFileException e ) {
+			return( false );
+		}
+		fileKey = getFileKey( );
+		lPosition = 0;
+		iLineLength = 0;
+		bSkipLine = false;
+		return( true );
+	}
+
+	/**
+	 * Returns key of the file currently at the path
+	 *
+	 * @return the file key or null if unavailable
+	 */
+	private Object getFileKey( ) {
+		try {
+			return( Files.readAttributes( path, BasicFileAttributes.class ).fileKey( ) );
+		}
+		catch( IOException e ) {
+			return( null );
+		}
+	}
+
+	/**
+	 * New lines event
+	 */
+	public static class LinesEvent implements Event {
+		private final Path path;
+		private final long lSequence;
+		private final List< String > lines;
+
+		/**
+		 * @param path the file path
+		 * @param lSequence the event sequence number
+		 * @param lines the new lines
+		 */
+		public LinesEvent( Path path, long lSequence, List< String > lines ) {
+			this.path = Objects.requireNonNull( path );
+			this.lSequence = lSequence;
+			this.lines = Collections.unmodifiableList( lines );
+		}
+
+		/**
+		 * Returns new lines
+		 *
+		 * @see org.homedns.mkh.util.Event#getEventData()
+		 */
+		@Override
+		public Object getEventData( ) {
+			return( lines );
+		}
+
+		/**
+		 * Returns new lines
+		 *
+		 * @return the lines
+		 */
+		public List< String > getLines( ) {
+			return( lines );
+		}
+
+		/**
+		 * Returns file path
+		 *
+		 * @return the file path
+		 */
+		public Path getPath( ) {
+			return( path );
+		}
+
+		/**
+		 * Returns event sequence number, events of the tailer are numbered from 0 in the file order
+		 *
+		 * @return the sequence number
+		 */
+		public long getSequence( ) {
+			return( lSequence );
+		}
+	}
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2026 Mikhail Khodonov.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.homedns.mkh.util.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Appends UTF-8 text to the file from many threads. Appends are queued and
+ * the single writer thread writes all pending ones with one channel write
+ * and, if requested, one fsync, so the cost of the sync is shared by the batch.
+ *
+ */
+public class GroupCommitWriter implements AutoCloseable {
+	/**
+	 * Maximum number of appends written in one batch
+	 */
+	public static final int MAX_BATCH = 4096;
+
+	private static final Entry CLOSE = new Entry( null );
+
+	private final FileChannel channel;
+	private final boolean bSync;
+	private final BlockingQueue< Entry > queue = new LinkedBlockingQueue< >( );
+	private final Thread thread;
+	// appends share the lock, close takes it exclusively, so nothing is queued after CLOSE
+	private final ReadWriteLock closeLock = new ReentrantReadWriteLock( );
+	private boolean bClosed;
+
+	/**
+	 * @param path the file path, file is created if it does not exist
+	 * @param bSync if true every batch is synced to the disk before appends are completed
+	 *
+	 * @throws IOException
+	 */
+	public GroupCommitWriter( Path path, boolean bSync ) throws IOException {
+		channel = FileChannel.open( path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND );
+		this.bSync = bSync;
+		thread = new Thread( this::run, "group-commit-" + path.getFileName( ) );
+		thread.setDaemon( true );
+		thread.start( );
+	}
+
+	/**
+	 * Queues text to append, the text is copied
+	 *
+	 * @param text the text to append
+	 *
+	 * @return the future completed when the text is written (and synced)
+	 */
+	public CompletableFuture< Void > append( CharSequence text ) {
+		Entry entry = new Entry( text.toString( ) );
+		closeLock.readLock( ).lock( );
+		try {
+			if( bClosed ) {
+				entry.future.completeExceptionally( new IllegalStateException( "Writer is closed" ) );
+			} else {
+				queue.add( entry );
+			}
+		}
+		finally {
+			closeLock.readLock( ).unlock( );
+		}
+		return( entry.future );
+	}
+
+	/**
+	 * Writes pending appends, closes the file
+	 *
+	 * @see java.lang.AutoCloseable#close()
+	 */
+	@Override
+	public void close( ) throws IOException {
+		closeLock.writeLock( ).lock( );
+		try {
+			if( bClosed ) {
+				return;
+			}
+			bClosed = true;
+			queue.add( CLOSE );
+		}
+		finally {
+			closeLock.writeLock( ).unlock( );
+		}
+		try {
+			thread.join( );
+		}
+		catch( InterruptedException e ) {
+			Thread.currentThread( ).interrupt( );
+		}
+		finally {
+			channel.close( );
+			// left by the interrupted writer thread
+			List< Entry > rest = new ArrayList< >( );
+			queue.drainTo( rest );
+			for( Entry entry : rest ) {
+				entry.future.completeExceptionally( new IllegalStateException( "Writer is closed" ) );
+			}
+		}
+	}
+
+	/**
+	 * Writer thread loop
+	 */
+	private void run( ) {
+		ByteBuffer buffer = ByteBuffer.allocateDirect( TextWriter.BUFFER_SIZE );
+		List< Entry > batch = new ArrayList< >( );
+		boolean bStop = false;
+		while( !bStop ) {
+			try {
+				batch.add( queue.take( ) );
+			}
+			catch( InterruptedException e ) {
+				bStop = true;
+			}
+			queue.drainTo( batch, MAX_BATCH - batch.size( ) );
+			int iLast = batch.indexOf( CLOSE );
+			if( iLast >= 0 ) {
+				// CLOSE is the last queued entry, all appends are in the batch
+				batch.remove( iLast );
+				bStop = true;
+			}
+			commit( batch, buffer );
+			batch.clear( );
+		}
+	}
+
+	/**
+	 * Writes batch and completes its futures
+	 *
+	 * @param batch the batch
+	 * @param buffer the byte buffer
+	 */
+	private void commit( List< Entry > batch, ByteBuffer buffer ) {
+		if( batch.isEmpty( ) ) {
+			return;
+		}
+		try {
+			@SuppressWarnings( "resource" )
+			TextWriter.ChannelWriter out = new TextWriter.ChannelWriter( channel, buffer );
+			for( Entry entry : batch ) {
+				out.append( entry.sText );
+			}
+			out.close( );
+			if( bSync ) {
+				channel.force( false );
+			}
+			for( Entry entry : batch ) {
+				entry.future.complete( null );
+			}
+		}
+		catch( IOException | RuntimeException e ) {
+			for( Entry entry : batch ) {
+				entry.future.completeExceptionally( e );
+			}
+		}
+	}
+
+	/**
+	 * Queued append
+	 */
+	private static class Entry {
+		private final String sText;
+		private final CompletableFuture< Void > future = new CompletableFuture< >( );
+
+		public Entry( String sText ) {
+			this.sText = sText;
+		}
+	}
+}
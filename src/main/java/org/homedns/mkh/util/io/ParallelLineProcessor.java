@@ -0,0 +1,287 @@
+/*
+ * Copyright 2026 Mikhail Khodonov.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.homedns.mkh.util.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.BiFunction;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Processes lines of the large text file in parallel. The file is split into
+ * byte ranges aligned to the line boundaries, every range is memory mapped
+ * and its lines are decoded and handled on the fork/join pool. Only charsets
+ * where the line feed is a single 0x0A byte never found inside multibyte
+ * sequences are supported (UTF-8, US-ASCII, ISO-8859-x, etc), UTF-8 byte
+ * order mark is skipped. Line breaks are not included in the lines.
+ *
+ */
+public class ParallelLineProcessor {
+	/**
+	 * Upper bound of the single mapped range
+	 */
+	public static final long MAX_RANGE_SIZE = 256L * 1024 * 1024;
+	private static final int SCAN_SIZE = 8 * 1024;
+
+	private ParallelLineProcessor( ) {
+	}
+
+	/**
+	 * Passes every line of the file to the consumer, lines are handled
+	 * concurrently in no particular order so consumer must be thread safe
+	 *
+	 * @param path the file path
+	 * @param charset the file charset
+	 * @param consumer the line consumer
+	 * @param pool the fork/join pool
+	 *
+	 * @throws IOException
+	 */
+	public static void forEach( Path path, Charset charset, Consumer< String > consumer, ForkJoinPool pool ) throws IOException {
+		mapReduce( path, charset, line -> {
+			consumer.accept( line );
+			return( null );
+		}, null, ( a, b ) -> null, pool );
+	}
+
+	/**
+	 * Passes every line of the UTF-8 file to the consumer using common fork/join pool
+	 *
+	 * @param path the file path
+	 * @param consumer the thread safe line consumer
+	 *
+	 * @throws IOException
+	 */
+	public static void forEach( Path path, Consumer< String > consumer ) throws IOException {
+		forEach( path, StandardCharsets.UTF_8, consumer, ForkJoinPool.commonPool( ) );
+	}
+
+	/**
+	 * Maps every line of the file in parallel and returns results in the file order
+	 *
+	 * @param path the file path
+	 * @param charset the file charset
+	 * @param mapper the line mapper
+	 * @param pool the fork/join pool
+	 *
+	 * @return the results list, one per line
+	 *
+	 * @throws IOException
+	 */
+	public static < R > List< R > map( Path path, Charset charset, Function< String, R > mapper, ForkJoinPool pool ) throws IOException {
+		List< ForkJoinTask< List< R > > > tasks = submit( path, charset, pool, ( ) -> new ArrayList< R >( ), ( list, line ) -> {
+			list.add( mapper.apply( line ) );
+			return( list );
+		} );
+		List< R > result = new ArrayList< >( );
+		for( ForkJoinTask< List< R > > task : tasks ) {
+			result.addAll( task.join( ) );
+		}
+		return( result );
+	}
+
+	/**
+	 * Maps every line of the file and reduces the results. Ranges are reduced in
+	 * parallel and their results are combined in the file order, so the
+	 * reducer must be associative but need not be commutative.
+	 *
+	 * @param path the file path
+	 * @param charset the file charset
+	 * @param mapper the line mapper
+	 * @param identity the reduction identity
+	 * @param reducer the associative reducer
+	 * @param pool the fork/join pool
+	 *
+	 * @return the reduction result
+	 *
+	 * @throws IOException
+	 */
+	public static < A > A mapReduce(
+		Path path,
+		Charset charset,
+		Function< String, A > mapper,
+		A identity,
+		BinaryOperator< A > reducer,
+		ForkJoinPool pool
+	) throws IOException {
+		List< ForkJoinTask< Holder< A > > > tasks = submit( path, charset, pool, ( ) -> new Holder< >( identity ), ( holder, line ) -> {
+			holder.value = reducer.apply( holder.value, mapper.apply( line ) );
+			return( holder );
+		} );
+		A result = identity;
+		for( ForkJoinTask< Holder< A > > task : tasks ) {
+			result = reducer.apply( result, task.join( ).value );
+		}
+		return( result );
+	}
+
+	/**
+	 * Splits file into the byte ranges aligned to the line boundaries
+	 *
+	 * @param channel the file channel
+	 * @param iParts the desired number of ranges
+	 *
+	 * @return the range bounds, range i is [bounds[i], bounds[i + 1])
+	 *
+	 * @throws IOException
+	 */
+	public static long[] split( FileChannel channel, int iParts ) throws IOException {
+		long lSize = channel.size( );
+		long lStart = skipBom( channel );
+		long lTarget = Math.max( 1, ( lSize - lStart + iParts - 1 ) / Math.max( 1, iParts ) );
+		lTarget = Math.min( lTarget, MAX_RANGE_SIZE );
+		List< Long > bounds = new ArrayList< >( );
+		bounds.add( lStart );
+		ByteBuffer scan = ByteBuffer.allocate( SCAN_SIZE );
+		long lPos = lStart;
+		while( lPos < lSize ) {
+			long lNext = lPos + lTarget;
+			if( lNext >= lSize ) {
+				lNext = lSize;
+			} else {
+				lNext = nextLineStart( channel, lNext, lSize, scan );
+			}
+			if( lNext - lPos > Integer.MAX_VALUE ) {
+				throw new IOException( "Line is too long at position " + lPos );
+			}
+			bounds.add( lNext );
+			lPos = lNext;
+		}
+		long[] result = new long[ bounds.size( ) ];
+		for( int i = 0; i < result.length; i++ ) {
+			result[ i ] = bounds.get( i );
+		}
+		return( result );
+	}
+
+	/**
+	 * Splits file and submits range tasks
+	 *
+	 * @param path the file path
+	 * @param charset the file charset
+	 * @param pool the fork/join pool
+	 * @param init the per range accumulator factory
+	 * @param step the line accumulation function
+	 *
+	 * @return the range tasks in the file order
+	 *
+	 * @throws IOException
+	 */
+	private static < T > List< ForkJoinTask< T > > submit(
+		Path path,
+		Charset charset,
+		ForkJoinPool pool,
+		Supplier< T > init,
+		BiFunction< T, String, T > step
+	) throws IOException {
+		if( charset.encode( "\n" ).remaining( ) != 1 ) {
+			throw new IllegalArgumentException( "Unsupported charset: " + charset );
+		}
+		List< ForkJoinTask< T > > tasks = new ArrayList< >( );
+		try( FileChannel channel = FileChannel.open( path, StandardOpenOption.READ ) ) {
+			long[] bounds = split( channel, pool.getParallelism( ) * 4 );
+			for( int i = 0; i < bounds.length - 1; i++ ) {
+				// mapping stays valid after the channel is closed
+				MappedByteBuffer region = channel.map( FileChannel.MapMode.READ_ONLY, bounds[ i ], bounds[ i + 1 ] - bounds[ i ] );
+				tasks.add( pool.submit( ( ) -> {
+					T acc = init.get( );
+					byte[] line = new byte[ 256 ];
+					int iLength = 0;
+					while( region.hasRemaining( ) ) {
+						byte b = region.get( );
+						if( b == '\n' ) {
+							acc = step.apply( acc, newLine( line, iLength, charset ) );
+							iLength = 0;
+						} else {
+							if( iLength == line.length ) {
+								line = Arrays.copyOf( line, iLength << 1 );
+							}
+							line[ iLength++ ] = b;
+						}
+					}
+					if( iLength > 0 ) {
+						acc = step.apply( acc, newLine( line, iLength, charset ) );
+					}
+					return( acc );
+				} ) );
+			}
+		}
+		return( tasks );
+	}
+
+	private static String newLine( byte[] line, int iLength, Charset charset ) {
+		if( iLength > 0 && line[ iLength - 1 ] == '\r' ) {
+			iLength--;
+		}
+		return( new String( line, 0, iLength, charset ) );
+	}
+
+	/**
+	 * Returns position after the first line feed at or after specified position
+	 */
+	private static long nextLineStart( FileChannel channel, long lFrom, long lSize, ByteBuffer scan ) throws IOException {
+		long lPos = lFrom;
+		while( lPos < lSize ) {
+			scan.clear( );
+			int iRead = channel.read( scan, lPos );
+			if( iRead <= 0 ) {
+				break;
+			}
+			for( int i = 0; i < iRead; i++ ) {
+				if( scan.get( i ) == '\n' ) {
+					return( lPos + i + 1 );
+				}
+			}
+			lPos += iRead;
+		}
+		return( lSize );
+	}
+
+	private static long skipBom( FileChannel channel ) throws IOException {
+		ByteBuffer head = ByteBuffer.allocate( 3 );
+		while( head.hasRemaining( ) && channel.read( head, head.position( ) ) > 0 ) {
+		}
+		boolean bBom = head.position( ) == 3
+			&& ( head.get( 0 ) & 0xFF ) == 0xEF && ( head.get( 1 ) & 0xFF ) == 0xBB && ( head.get( 2 ) & 0xFF ) == 0xBF;
+		return( bBom ? 3 : 0 );
+	}
+
+	/**
+	 * Mutable reduction holder
+	 */
+	private static class Holder< A > {
+		private A value;
+
+		public Holder( A value ) {
+			this.value = value;
+		}
+	}
+}
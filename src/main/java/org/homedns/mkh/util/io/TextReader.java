@@ -1,4 +1,4 @@
-/* 
+/*
  * Copyright 2020 Mikhail Khodonov.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
@@ -17,35 +17,286 @@
 package org.homedns.mkh.util.io;
 
 import java.io.BufferedReader;
-import java.io.FileInputStream;
-import java.io.InputStreamReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
-
-import org.apache.commons.io.input.BOMInputStream;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
- * Reader text from the file 
+ * Reader text from the file. The file charset is taken from the byte order
+ * mark if any, otherwise the specified or default charset is used.
  *
  */
 public class TextReader {
-	
+	public static final int CHUNK_SIZE = 64 * 1024;
+
 	/**
-	 * Reads content from specified file
-	 * 
+	 * Reads content from specified file, line breaks are removed. The file is
+	 * decoded with the platform charset, UTF-8 byte order mark is skipped, other
+	 * byte order marks are not detected.
+	 *
 	 * @param path the file path
-	 * 
+	 *
 	 * @return the string
-	 * 
+	 *
 	 * @throws Exception
 	 */
 	public static String read( Path path ) throws Exception {
-		StringBuffer sb = new StringBuffer( );
-		try( BufferedReader in = new BufferedReader( new InputStreamReader( new BOMInputStream( new FileInputStream( path.toFile( ) ) ) ) ) ) {
-			String sLine;
-			while( ( sLine = in.readLine( ) ) != null ) {
-				sb.append( sLine );
+		String s = readAll( path, Charset.defaultCharset( ), false );
+		StringBuilder sb = new StringBuilder( s.length( ) );
+		int iStart = 0;
+		for( int i = 0; i < s.length( ); i++ ) {
+			char c = s.charAt( i );
+			if( c == '\n' || c == '\r' ) {
+				sb.append( s, iStart, i );
+				iStart = i + 1;
 			}
 		}
+		sb.append( s, iStart, s.length( ) );
 		return( sb.toString( ) );
 	}
+
+	/**
+	 * Reads content from specified file as is, default charset is UTF-8
+	 *
+	 * @param path the file path
+	 *
+	 * @return the file content
+	 *
+	 * @throws IOException
+	 */
+	public static String readAll( Path path ) throws IOException {
+		return( readAll( path, StandardCharsets.UTF_8 ) );
+	}
+
+	/**
+	 * Reads content from specified file as is
+	 *
+	 * @param path the file path
+	 * @param defaultCharset the charset to use if file has no byte order mark
+	 *
+	 * @return the file content
+	 *
+	 * @throws IOException
+	 */
+	public static String readAll( Path path, Charset defaultCharset ) throws IOException {
+		return( readAll( path, defaultCharset, true ) );
+	}
+
+	/**
+	 * Reads content from specified file as is. The file is read rather than
+	 * memory mapped, the mapping would keep the file locked on windows until
+	 * it is garbage collected.
+	 *
+	 * @param path the file path
+	 * @param defaultCharset the charset to use if file has no byte order mark
+	 * @param bDetect if false only UTF-8 byte order mark is skipped and the default charset is used
+	 *
+	 * @return the file content
+	 *
+	 * @throws IOException
+	 */
+	private static String readAll( Path path, Charset defaultCharset, boolean bDetect ) throws IOException {
+		try( FileChannel channel = FileChannel.open( path, StandardOpenOption.READ ) ) {
+			long lSize = channel.size( );
+			if( lSize > Integer.MAX_VALUE ) {
+				throw new IOException( "File is too large to read at once: " + path );
+			}
+			ByteBuffer buffer = ByteBuffer.allocate( ( int )lSize );
+			while( buffer.position( ) < buffer.capacity( ) ) {
+				// the channel copies through the temporary direct buffer of the read size
+				buffer.limit( Math.min( buffer.position( ) + CHUNK_SIZE, buffer.capacity( ) ) );
+				if( channel.read( buffer ) < 0 ) {
+					break;
+				}
+			}
+			buffer.flip( );
+			Bom bom = Bom.detect( buffer, defaultCharset );
+			if( !bDetect ) {
+				bom = new Bom( defaultCharset, bom.charset == StandardCharsets.UTF_8 ? bom.iLength : 0 );
+			}
+			buffer.position( buffer.position( ) + bom.iLength );
+			try {
+				return( newDecoder( bom.charset ).decode( buffer ).toString( ) );
+			}
+			catch( CharacterCodingException e ) {
+				// never happens with REPLACE action
+				throw new IOException( e );
+			}
+		}
+	}
+
+	/**
+	 * Returns lazily populated stream of the file lines, the stream must be
+	 * closed to release the file
+	 *
+	 * @param path the file path
+	 *
+	 * @return the lines stream
+	 *
+	 * @throws IOException
+	 */
+	public static Stream< String > lines( Path path ) throws IOException {
+		return( lines( path, StandardCharsets.UTF_8 ) );
+	}
+
+	/**
+	 * Returns lazily populated stream of the file lines, the stream must be
+	 * closed to release the file
+	 *
+	 * @param path the file path
+	 * @param defaultCharset the charset to use if file has no byte order mark
+	 *
+	 * @return the lines stream
+	 *
+	 * @throws IOException
+	 */
+	public static Stream< String > lines( Path path, Charset defaultCharset ) throws IOException {
+		FileChannel channel = FileChannel.open( path, StandardOpenOption.READ );
+		try {
+			Bom bom = Bom.detect( channel, defaultCharset );
+			channel.position( bom.iLength );
+			BufferedReader in = new BufferedReader( Channels.newReader( channel, newDecoder( bom.charset ), CHUNK_SIZE ) );
+			return( in.lines( ).onClose( ( ) -> {
+				try {
+					in.close( );
+				}
+				catch( IOException e ) {
+					throw new UncheckedIOException( e );
+				}
+			} ) );
+		}
+		catch( IOException | RuntimeException e ) {
+			channel.close( );
+			throw e;
+		}
+	}
+
+	/**
+	 * Decodes specified file chunk by chunk passing every chunk to the consumer.
+	 * The chunk buffer is reused, consumer must not keep reference to it.
+	 * Chunks may end in the middle of the line.
+	 *
+	 * @param path the file path
+	 * @param defaultCharset the charset to use if file has no byte order mark
+	 * @param consumer the chunk consumer
+	 *
+	 * @throws IOException
+	 */
+	public static void forEachChunk( Path path, Charset defaultCharset, Consumer< CharBuffer > consumer ) throws IOException {
+		try( FileChannel channel = FileChannel.open( path, StandardOpenOption.READ ) ) {
+			Bom bom = Bom.detect( channel, defaultCharset );
+			channel.position( bom.iLength );
+			CharsetDecoder decoder = newDecoder( bom.charset );
+			ByteBuffer in = ByteBuffer.allocateDirect( CHUNK_SIZE );
+			CharBuffer out = CharBuffer.allocate( CHUNK_SIZE );
+			boolean bEof = false;
+			while( !bEof ) {
+				bEof = channel.read( in ) < 0;
+				in.flip( );
+				while( decoder.decode( in, out, bEof ).isOverflow( ) ) {
+					emit( out, consumer );
+				}
+				// incomplete multibyte sequence stays for the next read
+				in.compact( );
+				emit( out, consumer );
+			}
+			while( decoder.flush( out ).isOverflow( ) ) {
+				emit( out, consumer );
+			}
+			emit( out, consumer );
+		}
+	}
+
+	private static void emit( CharBuffer out, Consumer< CharBuffer > consumer ) {
+		if( out.position( ) > 0 ) {
+			out.flip( );
+			consumer.accept( out );
+			out.clear( );
+		}
+	}
+
+	private static CharsetDecoder newDecoder( Charset charset ) {
+		return(
+			charset
+				.newDecoder( )
+				.onMalformedInput( CodingErrorAction.REPLACE )
+				.onUnmappableCharacter( CodingErrorAction.REPLACE )
+		);
+	}
+
+	/**
+	 * Byte order mark
+	 */
+	private static class Bom {
+		private final Charset charset;
+		private final int iLength;
+
+		public Bom( Charset charset, int iLength ) {
+			this.charset = charset;
+			this.iLength = iLength;
+		}
+
+		/**
+		 * Detects byte order mark at the channel start
+		 *
+		 * @param channel the file channel
+		 * @param defaultCharset the charset to use if there is no byte order mark
+		 *
+		 * @return the byte order mark
+		 *
+		 * @throws IOException
+		 */
+		public static Bom detect( FileChannel channel, Charset defaultCharset ) throws IOException {
+			ByteBuffer head = ByteBuffer.allocate( 4 );
+			while( head.hasRemaining( ) && channel.read( head, head.position( ) ) > 0 ) {
+			}
+			head.flip( );
+			return( detect( head, defaultCharset ) );
+		}
+
+		/**
+		 * Detects byte order mark at the buffer position, buffer position is not changed
+		 *
+		 * @param buffer the buffer
+		 * @param defaultCharset the charset to use if there is no byte order mark
+		 *
+		 * @return the byte order mark
+		 */
+		public static Bom detect( ByteBuffer buffer, Charset defaultCharset ) {
+			int iPos = buffer.position( );
+			int iSize = buffer.remaining( );
+			int b0 = iSize > 0 ? buffer.get( iPos ) & 0xFF : -1;
+			int b1 = iSize > 1 ? buffer.get( iPos + 1 ) & 0xFF : -1;
+			int b2 = iSize > 2 ? buffer.get( iPos + 2 ) & 0xFF : -1;
+			int b3 = iSize > 3 ? buffer.get( iPos + 3 ) & 0xFF : -1;
+			if( b0 == 0xEF && b1 == 0xBB && b2 == 0xBF ) {
+				return( new Bom( StandardCharsets.UTF_8, 3 ) );
+			}
+			if( b0 == 0x00 && b1 == 0x00 && b2 == 0xFE && b3 == 0xFF ) {
+				return( new Bom( Charset.forName( "UTF-32BE" ), 4 ) );
+			}
+			if( b0 == 0xFF && b1 == 0xFE && b2 == 0x00 && b3 == 0x00 ) {
+				return( new Bom( Charset.forName( "UTF-32LE" ), 4 ) );
+			}
+			if( b0 == 0xFE && b1 == 0xFF ) {
+				return( new Bom( StandardCharsets.UTF_16BE, 2 ) );
+			}
+			if( b0 == 0xFF && b1 == 0xFE ) {
+				return( new Bom( StandardCharsets.UTF_16LE, 2 ) );
+			}
+			return( new Bom( defaultCharset, 0 ) );
+		}
+	}
 }
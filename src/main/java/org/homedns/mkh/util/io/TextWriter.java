@@ -1,4 +1,4 @@
-/* 
+/*
  * Copyright 2020 Mikhail Khodonov.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
@@ -16,26 +16,377 @@
 
 package org.homedns.mkh.util.io;
 
-import java.io.PrintWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.util.Iterator;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
- * Writer UTF-8 text into the file 
+ * Writer UTF-8 text into the file. Content is streamed through the reusable
+ * per thread direct buffer, so it need not be built in memory first.
  *
  */
 public class TextWriter {
-	
+	public static final int BUFFER_SIZE = 64 * 1024;
+
+	private static final ThreadLocal< ByteBuffer > BUFFER = ThreadLocal.withInitial(
+		( ) -> ByteBuffer.allocateDirect( BUFFER_SIZE )
+	);
+
+	/**
+	 * Write modes
+	 */
+	public enum Mode {
+		/**
+		 * Existing file is truncated
+		 */
+		TRUNCATE,
+		/**
+		 * Content is appended to the existing file
+		 */
+		APPEND,
+		/**
+		 * Content is written to the temporary file which is synced to the disk
+		 * and then renamed over the target, readers see either old or new
+		 * content and never the truncated file. The existing target permissions
+		 * and owner are kept where the platform allows it
+		 */
+		ATOMIC
+	}
+
+	/**
+	 * Content producer
+	 */
+	public interface Content {
+
+		/**
+		 * Writes content into the specified writer
+		 *
+		 * @param out the writer
+		 *
+		 * @throws IOException
+		 */
+		public void writeTo( Writer out ) throws IOException;
+	}
+
 	/**
 	 * Writes string into the file in UTF-8 encoding
-	 * 
+	 *
 	 * @param path the file path
 	 * @param sContent the content to write
-	 * 
+	 *
 	 * @throws Exception
 	 */
 	public static void write( Path path, String sContent ) throws Exception {
-		try( PrintWriter out = new PrintWriter( path.toFile( ), "UTF-8" ) ) {
-			out.print( sContent );
+		write( path, sContent, Mode.TRUNCATE );
+	}
+
+	/**
+	 * Writes char sequence into the file in UTF-8 encoding
+	 *
+	 * @param path the file path
+	 * @param content the content to write
+	 * @param mode the write mode
+	 *
+	 * @throws IOException
+	 */
+	public static void write( Path path, CharSequence content, Mode mode ) throws IOException {
+		write( path, out -> out.append( content ), mode );
+	}
+
+	/**
+	 * Writes lines into the file in UTF-8 encoding, every line is followed by the line feed
+	 *
+	 * @param path the file path
+	 * @param lines the lines to write
+	 * @param mode the write mode
+	 *
+	 * @throws IOException
+	 */
+	public static void write( Path path, Iterator< ? extends CharSequence > lines, Mode mode ) throws IOException {
+		write( path, out -> {
+			while( lines.hasNext( ) ) {
+				out.append( lines.next( ) ).append( '\n' );
+			}
+		}, mode );
+	}
+
+	/**
+	 * Writes content produced by the callback into the file in UTF-8 encoding
+	 *
+	 * @param path the file path
+	 * @param content the content producer
+	 * @param mode the write mode
+	 *
+	 * @throws IOException
+	 */
+	public static void write( Path path, Content content, Mode mode ) throws IOException {
+		if( mode == Mode.ATOMIC ) {
+			writeAtomic( path, content );
+			return;
+		}
+		ByteBuffer buffer = acquire( );
+		try(
+			FileChannel channel = mode == Mode.APPEND
+				? FileChannel.open( path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND )
+				: FileChannel.open( path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING );
+			ChannelWriter out = new ChannelWriter( channel, buffer );
+		) {
+			content.writeTo( out );
+		}
+		finally {
+			BUFFER.set( buffer );
+		}
+	}
+
+	/**
+	 * Writes content into the temporary file, syncs it and renames it over the target
+	 *
+	 * @param path the target file path
+	 * @param content the content producer
+	 *
+	 * @throws IOException
+	 */
+	private static void writeAtomic( Path path, Content content ) throws IOException {
+		Path target = path.toAbsolutePath( );
+		try {
+			// symbolic link is kept, the file it points to is replaced
+			target = target.toRealPath( );
+		}
+		catch( NoSuchFileException e ) {
+			// new file
+		}
+		Path dir = target.getParent( );
+		Path tmp = null;
+		ByteBuffer buffer = acquire( );
+		try {
+			FileChannel channel = null;
+			while( channel == null ) {
+				// created like the target itself would be, so the new file gets the default permissions
+				tmp = dir.resolve( "." + target.getFileName( ) + Long.toHexString( ThreadLocalRandom.current( ).nextLong( ) ) + ".tmp" );
+				try {
+					channel = FileChannel.open( tmp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE );
+				}
+				catch( FileAlreadyExistsException e ) {
+					// name collision, try another one
+				}
+			}
+			try( FileChannel c = channel ) {
+				// the encoder is completed before the sync
+				try( ChannelWriter out = new ChannelWriter( c, buffer ) ) {
+					content.writeTo( out );
+				}
+				c.force( true );
+			}
+			copyAttributes( target, tmp );
+			try {
+				Files.move( tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING );
+			}
+			catch( AtomicMoveNotSupportedException e ) {
+				Files.move( tmp, target, StandardCopyOption.REPLACE_EXISTING );
+			}
+			syncDir( dir );
+		}
+		finally {
+			BUFFER.set( buffer );
+			if( tmp != null ) {
+				Files.deleteIfExists( tmp );
+			}
+		}
+	}
+
+	/**
+	 * Copies posix permissions and owner of the existing target to the replacement file
+	 *
+	 * @param target the target file
+	 * @param file the replacement file
+	 *
+	 * @throws IOException
+	 */
+	private static void copyAttributes( Path target, Path file ) throws IOException {
+		PosixFileAttributeView view = Files.getFileAttributeView( file, PosixFileAttributeView.class );
+		if( view == null ) {
+			return;
+		}
+		PosixFileAttributes attrs;
+		try {
+			attrs = Files.readAttributes( target, PosixFileAttributes.class );
+		}
+		catch( NoSuchFileException e ) {
+			return;
+		}
+		view.setPermissions( attrs.permissions( ) );
+		try {
+			view.setGroup( attrs.group( ) );
+			view.setOwner( attrs.owner( ) );
+		}
+		catch( IOException e ) {
+			// changing owner needs the privilege, the writer becomes the owner then
+		}
+	}
+
+	/**
+	 * Takes this thread buffer, nested writes from the content callback get their own buffer
+	 *
+	 * @return the buffer which must be given back with {@code BUFFER.set( buffer )}
+	 */
+	private static ByteBuffer acquire( ) {
+		ByteBuffer buffer = BUFFER.get( );
+		BUFFER.set( null );
+		return( buffer != null ? buffer : ByteBuffer.allocateDirect( BUFFER_SIZE ) );
+	}
+
+	/**
+	 * Syncs directory entry changes to the disk where the platform allows it
+	 *
+	 * @param dir the directory
+	 */
+	static void syncDir( Path dir ) {
+		try( FileChannel channel = FileChannel.open( dir, StandardOpenOption.READ ) ) {
+			channel.force( true );
+		}
+		catch( IOException e ) {
+			// not supported on some platforms, e.g. windows
+		}
+	}
+
+	/**
+	 * Writer which encodes chars in UTF-8 into the byte buffer and flushes it to the channel
+	 */
+	static class ChannelWriter extends Writer {
+		private final FileChannel channel;
+		private final ByteBuffer buffer;
+		private final CharsetEncoder encoder;
+		private final char[] single = new char[ 1 ];
+		private final char[] carry = new char[ 2 ];
+		private int iCarry;
+		private boolean bClosed;
+
+		/**
+		 * @param channel the target channel
+		 * @param buffer the byte buffer to use, it is cleared
+		 */
+		public ChannelWriter( FileChannel channel, ByteBuffer buffer ) {
+			this.channel = channel;
+			this.buffer = buffer;
+			buffer.clear( );
+			encoder = StandardCharsets.UTF_8
+				.newEncoder( )
+				.onMalformedInput( CodingErrorAction.REPLACE )
+				.onUnmappableCharacter( CodingErrorAction.REPLACE );
+		}
+
+		/**
+		 * @see java.io.Writer#write(char[], int, int)
+		 */
+		@Override
+		public void write( char[] cbuf, int iOffset, int iLength ) throws IOException {
+			encode( CharBuffer.wrap( cbuf, iOffset, iLength ) );
+		}
+
+		/**
+		 * @see java.io.Writer#write(int)
+		 */
+		@Override
+		public void write( int c ) throws IOException {
+			single[ 0 ] = ( char )c;
+			write( single, 0, 1 );
+		}
+
+		/**
+		 * @see java.io.Writer#write(java.lang.String, int, int)
+		 */
+		@Override
+		public void write( String s, int iOffset, int iLength ) throws IOException {
+			encode( CharBuffer.wrap( s, iOffset, iOffset + iLength ) );
+		}
+
+		/**
+		 * @see java.io.Writer#append(java.lang.CharSequence)
+		 */
+		@Override
+		public Writer append( CharSequence csq ) throws IOException {
+			encode( CharBuffer.wrap( csq == null ? "null" : csq ) );
+			return( this );
+		}
+
+		/**
+		 * @see java.io.Writer#flush()
+		 */
+		@Override
+		public void flush( ) throws IOException {
+			drain( );
+		}
+
+		/**
+		 * Completes encoding and flushes buffer, channel is closed by the owner
+		 *
+		 * @see java.io.Writer#close()
+		 */
+		@Override
+		public void close( ) throws IOException {
+			if( bClosed ) {
+				return;
+			}
+			bClosed = true;
+			CharBuffer rest = CharBuffer.wrap( carry, 0, iCarry );
+			iCarry = 0;
+			while( encoder.encode( rest, buffer, true ).isOverflow( ) ) {
+				drain( );
+			}
+			while( encoder.flush( buffer ).isOverflow( ) ) {
+				drain( );
+			}
+			drain( );
+		}
+
+		private void encode( CharBuffer in ) throws IOException {
+			if( iCarry > 0 && in.hasRemaining( ) ) {
+				carry[ 1 ] = in.get( );
+				iCarry = 0;
+				encodeChunk( CharBuffer.wrap( carry, 0, 2 ) );
+			}
+			encodeChunk( in );
+		}
+
+		/**
+		 * Encodes chars, trailing high surrogate is carried to the next write
+		 *
+		 * @param in the chars to encode
+		 *
+		 * @throws IOException
+		 */
+		private void encodeChunk( CharBuffer in ) throws IOException {
+			while( encoder.encode( in, buffer, false ).isOverflow( ) ) {
+				drain( );
+			}
+			if( in.hasRemaining( ) ) {
+				carry[ 0 ] = in.get( );
+				iCarry = 1;
+			}
+		}
+
+		private void drain( ) throws IOException {
+			buffer.flip( );
+			while( buffer.hasRemaining( ) ) {
+				channel.write( buffer );
+			}
+			buffer.clear( );
 		}
 	}
 }
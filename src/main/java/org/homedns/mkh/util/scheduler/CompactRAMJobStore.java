@@ -0,0 +1,72 @@
+/*
+ * Copyright 2026 Mikhail Khodonov.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.homedns.mkh.util.scheduler;
+
+import org.quartz.JobDetail;
+import org.quartz.Trigger.CompletedExecutionInstruction;
+import org.quartz.simpl.RAMJobStore;
+import org.quartz.spi.OperableTrigger;
+
+/**
+ * RAM job store for many short lived triggers. Triggers are kept in the
+ * time ordered tree of {@link RAMJobStore}, so acquisition and removal cost
+ * O(log n). Completed triggers and their orphaned non durable jobs are removed
+ * by the store itself in the same locked step as the completion, instead of
+ * the separate unschedule call through the scheduler. Set
+ * {@code org.quartz.jobStore.removeCompletedTriggers=false} to keep them in
+ * the complete state like {@link RAMJobStore} does.
+ *
+ */
+public class CompactRAMJobStore extends RAMJobStore {
+	private volatile boolean bRemoveCompletedTriggers = true;
+
+	/**
+	 * Returns true if completed triggers are removed
+	 *
+	 * @return the remove completed triggers flag
+	 */
+	public boolean isRemoveCompletedTriggers( ) {
+		return( bRemoveCompletedTriggers );
+	}
+
+	/**
+	 * Sets whether completed triggers are removed, set by the scheduler
+	 * factory from the job store properties
+	 *
+	 * @param bRemoveCompletedTriggers the flag to set
+	 */
+	public void setRemoveCompletedTriggers( boolean bRemoveCompletedTriggers ) {
+		this.bRemoveCompletedTriggers = bRemoveCompletedTriggers;
+	}
+
+	/**
+	 * @see org.quartz.simpl.RAMJobStore#triggeredJobComplete(org.quartz.spi.OperableTrigger, org.quartz.JobDetail, org.quartz.Trigger.CompletedExecutionInstruction)
+	 */
+	@Override
+	public void triggeredJobComplete(
+		OperableTrigger trigger,
+		JobDetail jobDetail,
+		CompletedExecutionInstruction triggerInstCode
+	) {
+		synchronized( lock ) {
+			super.triggeredJobComplete( trigger, jobDetail, triggerInstCode );
+			if( bRemoveCompletedTriggers && triggerInstCode == CompletedExecutionInstruction.SET_TRIGGER_COMPLETE ) {
+				removeTrigger( trigger.getKey( ) );
+			}
+		}
+	}
+}
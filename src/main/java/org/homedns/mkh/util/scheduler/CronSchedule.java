@@ -0,0 +1,686 @@
+/*
+ * Copyright 2026 Mikhail Khodonov.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.homedns.mkh.util.scheduler;
+
+import java.text.ParseException;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import org.quartz.CronExpression;
+
+/**
+ * Compiled quartz cron expression. The expression is parsed by quartz
+ * {@link CronExpression} first, so exactly the quartz syntax is accepted, and
+ * the parsed quartz expression is kept for the triggers. Every field is also
+ * kept as the bit set of the allowed values, the next fire time is found by
+ * the bit scans from the year down to the second, so it costs a few
+ * operations per field regardless of the expression. The bit sets cover
+ * lists, ranges (wrapping ones too), increments, month and day names, '?',
+ * 'L', 'L-n', 'W', 'LW', 'nL', 'n#k' and the year field. Expressions they do
+ * not represent exactly are evaluated by quartz: zero increments, empty list
+ * items, names with increments, 'L-nW', 'L-n' day of week, years after
+ * {@link #MAX_YEAR} and 'nW' after the 28th, which quartz moves into the next
+ * month for the shorter months. The first fire times of the bit sets are
+ * checked against quartz on compile, on any difference quartz is used too.
+ * Instances are immutable, compiled expressions are cached and shared.
+ *
+ */
+public class CronSchedule {
+	/**
+	 * Maximum year, the same as quartz uses
+	 */
+	public static final int MAX_YEAR = Calendar.getInstance( ).get( Calendar.YEAR ) + 100;
+
+	private static final int MIN_YEAR = 1970;
+	private static final int MAX_CACHE_SIZE = 4096;
+	// number of fire times checked against quartz on compile
+	private static final int CHECK_COUNT = 8;
+	private static final ZoneId UTC = ZoneId.of( "UTC" );
+	private static final String[] MONTHS = {
+		"JAN", "FEB", "MAR", "APR", "MAY", "JUN", "JUL", "AUG", "SEP", "OCT", "NOV", "DEC"
+	};
+	private static final String[] DAYS = { "SUN", "MON", "TUE", "WED", "THU", "FRI", "SAT" };
+	private static final Map< String, CronSchedule > CACHE = new ConcurrentHashMap< >( );
+
+	private final String sExpression;
+	private final CronExpression quartz;
+	// true if the fire times are computed by quartz
+	private final boolean bDelegate;
+	private long lSeconds;
+	private long lMinutes;
+	private long lHours;
+	private long lMonths;
+	private BitSet years;
+	// day of month, 0 if '?'
+	private long lDaysOfMonth;
+	private boolean bLastDay;
+	private int iLastDayOffset;
+	private boolean bLastWeekday;
+	private int iNearestWeekday;
+	// day of week 1 (SUN) - 7 (SAT), not used if '?'
+	private boolean bDayOfWeek;
+	private long lDaysOfWeek;
+	private int iLastDayOfWeek;
+	private int iNthDayOfWeek;
+	private int iNth;
+
+	/**
+	 * Returns compiled expression from the cache, compiles and caches it if needed
+	 *
+	 * @param sExpression the cron expression
+	 *
+	 * @return the compiled expression
+	 *
+	 * @throws ParseException if expression is invalid
+	 */
+	public static CronSchedule compile( String sExpression ) throws ParseException {
+		if( sExpression == null ) {
+			throw new ParseException( "Cron expression is null", 0 );
+		}
+		CronSchedule schedule = CACHE.get( sExpression );
+		if( schedule == null ) {
+			schedule = new CronSchedule( sExpression );
+			if( CACHE.size( ) < MAX_CACHE_SIZE ) {
+				CronSchedule prev = CACHE.putIfAbsent( sExpression, schedule );
+				if( prev != null ) {
+					schedule = prev;
+				}
+			}
+		}
+		return( schedule );
+	}
+
+	/**
+	 * Returns true if expression is valid
+	 *
+	 * @param sExpression the cron expression
+	 *
+	 * @return true if valid
+	 */
+	public static boolean isValid( String sExpression ) {
+		try {
+			compile( sExpression );
+			return( true );
+		}
+		catch( ParseException e ) {
+			return( false );
+		}
+	}
+
+	/**
+	 * Compiles expression, use {@link #compile(String)} to share compiled instances
+	 *
+	 * @param sExpression the cron expression
+	 *
+	 * @throws ParseException if expression is invalid
+	 */
+	public CronSchedule( String sExpression ) throws ParseException {
+		this.sExpression = sExpression;
+		quartz = new CronExpression( sExpression );
+		boolean bCompiled;
+		try {
+			compileFields( );
+			// quartz lenient calendar moves these days into the next month for the shorter months
+			bCompiled = iNearestWeekday <= 28 && matchesQuartz( );
+		}
+		catch( ParseException e ) {
+			bCompiled = false;
+		}
+		bDelegate = !bCompiled;
+	}
+
+	/**
+	 * Returns new copy of the parsed quartz expression, quartz expression is
+	 * mutable so every trigger needs its own
+	 *
+	 * @return the quartz expression
+	 */
+	public CronExpression getCronExpression( ) {
+		return( new CronExpression( quartz ) );
+	}
+
+	/**
+	 * Returns true if the bit sets give the same fire times as quartz, the
+	 * first fire times after the current time are compared in UTC
+	 *
+	 * @return true if fire times are the same
+	 */
+	private boolean matchesQuartz( ) {
+		CronExpression expression = getCronExpression( );
+		expression.setTimeZone( TimeZone.getTimeZone( UTC ) );
+		Date after = new Date( );
+		for( int i = 0; i < CHECK_COUNT && after != null; i++ ) {
+			Date expected = expression.getTimeAfter( after );
+			if( !Objects.equals( expected, next( after, UTC ) ) ) {
+				return( false );
+			}
+			after = expected;
+		}
+		return( true );
+	}
+
+	/**
+	 * Compiles fields into the bit sets
+	 *
+	 * @throws ParseException if the expression is not supported by the bit sets
+	 */
+	private void compileFields( ) throws ParseException {
+		String[] fields = sExpression.trim( ).toUpperCase( Locale.ROOT ).split( "\\s+" );
+		if( fields.length < 6 || fields.length > 7 ) {
+			throw new ParseException( "Cron expression must have 6 or 7 fields: " + sExpression, 0 );
+		}
+		lSeconds = parse( fields[ 0 ], 0, 59, null );
+		lMinutes = parse( fields[ 1 ], 0, 59, null );
+		lHours = parse( fields[ 2 ], 0, 23, null );
+		parseDayOfMonth( fields[ 3 ] );
+		lMonths = parse( fields[ 4 ], 1, 12, MONTHS );
+		parseDayOfWeek( fields[ 5 ] );
+		boolean bDomNone = "?".equals( fields[ 3 ] );
+		boolean bDowNone = "?".equals( fields[ 5 ] );
+		if( bDomNone == bDowNone ) {
+			throw new ParseException( "Either day of month or day of week must be '?': " + sExpression, 0 );
+		}
+		if( fields.length == 7 && !"*".equals( fields[ 6 ] ) ) {
+			years = parseYears( fields[ 6 ] );
+		} else {
+			years = null;
+		}
+	}
+
+	/**
+	 * Returns the next fire time after the specified time in the default time zone
+	 *
+	 * @param after the time
+	 *
+	 * @return the next fire time or null if it will never fire
+	 */
+	public Date getNextFireTime( Date after ) {
+		return( getNextFireTime( after, ZoneId.systemDefault( ) ) );
+	}
+
+	/**
+	 * Returns the next fire time after the specified time
+	 *
+	 * @param after the time
+	 * @param zone the time zone of the expression
+	 *
+	 * @return the next fire time or null if it will never fire
+	 */
+	public Date getNextFireTime( Date after, ZoneId zone ) {
+		if( bDelegate ) {
+			CronExpression expression = getCronExpression( );
+			expression.setTimeZone( TimeZone.getTimeZone( zone ) );
+			return( expression.getTimeAfter( after ) );
+		}
+		return( next( after, zone ) );
+	}
+
+	/**
+	 * Returns the next fire time after the specified time computed by the bit sets
+	 *
+	 * @param after the time
+	 * @param zone the time zone of the expression
+	 *
+	 * @return the next fire time or null if it will never fire
+	 */
+	private Date next( Date after, ZoneId zone ) {
+		Instant instant = Instant.ofEpochSecond( Math.floorDiv( after.getTime( ), 1000L ) + 1 );
+		LocalDateTime time = LocalDateTime.ofInstant( instant, zone );
+		while( true ) {
+			LocalDateTime next = next( time );
+			if( next == null ) {
+				return( null );
+			}
+			// like quartz the time skipped when clocks go forward does not fire,
+			// the time repeated when clocks go back fires once with the later offset
+			ZonedDateTime zoned = next.atZone( zone ).withLaterOffsetAtOverlap( );
+			if( zoned.toLocalDateTime( ).equals( next ) && zoned.toInstant( ).toEpochMilli( ) > after.getTime( ) ) {
+				return( Date.from( zoned.toInstant( ) ) );
+			}
+			time = next.plusSeconds( 1 );
+		}
+	}
+
+	/**
+	 * Returns fire times within the interval
+	 *
+	 * @param from the interval start, exclusive
+	 * @param to the interval end, inclusive
+	 * @param iMax the maximum number of fire times to return
+	 *
+	 * @return the fire times
+	 */
+	public List< Date > getFireTimes( Date from, Date to, int iMax ) {
+		ZoneId zone = ZoneId.systemDefault( );
+		List< Date > list = new ArrayList< >( );
+		Date next = getNextFireTime( from, zone );
+		while( next != null && !next.after( to ) && list.size( ) < iMax ) {
+			list.add( next );
+			next = getNextFireTime( next, zone );
+		}
+		return( list );
+	}
+
+	/**
+	 * Returns true if the time (to the second) matches the expression in the default time zone
+	 *
+	 * @param date the time
+	 *
+	 * @return true if matches
+	 */
+	public boolean isSatisfiedBy( Date date ) {
+		long lSecond = Math.floorDiv( date.getTime( ), 1000L ) * 1000L;
+		Date next = getNextFireTime( new Date( lSecond - 1000L ) );
+		return( next != null && next.getTime( ) == lSecond );
+	}
+
+	/**
+	 * Returns the expression
+	 *
+	 * @return the expression
+	 */
+	public String getExpression( ) {
+		return( sExpression );
+	}
+
+	/**
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString( ) {
+		return( sExpression );
+	}
+
+	/**
+	 * Returns the first matching local time at or after the specified one.
+	 * A field value out of its range carries to the upper field on the next
+	 * pass, the lower fields are reset to their start.
+	 *
+	 * @param time the start time
+	 *
+	 * @return the matching time or null if there is none before {@link #MAX_YEAR}
+	 */
+	private LocalDateTime next( LocalDateTime time ) {
+		int iYear = time.getYear( );
+		int iMonth = time.getMonthValue( );
+		int iDay = time.getDayOfMonth( );
+		int iHour = time.getHour( );
+		int iMinute = time.getMinute( );
+		int iSecond = time.getSecond( );
+		while( true ) {
+			if( iMonth > 12 ) {
+				iYear++;
+				iMonth = 1;
+			}
+			if( iYear > MAX_YEAR ) {
+				return( null );
+			}
+			if( years != null && !years.get( iYear ) ) {
+				int iNext = years.nextSetBit( iYear );
+				if( iNext < 0 ) {
+					return( null );
+				}
+				iYear = iNext;
+				iMonth = 1;
+				iDay = 1;
+				iHour = iMinute = iSecond = 0;
+			}
+			int iNext = nextBit( lMonths, iMonth );
+			if( iNext < 0 ) {
+				iYear++;
+				iMonth = iDay = 1;
+				iHour = iMinute = iSecond = 0;
+				continue;
+			}
+			if( iNext != iMonth ) {
+				iMonth = iNext;
+				iDay = 1;
+				iHour = iMinute = iSecond = 0;
+			}
+			iNext = nextDay( iYear, iMonth, iDay );
+			if( iNext < 0 ) {
+				iMonth++;
+				iDay = 1;
+				iHour = iMinute = iSecond = 0;
+				continue;
+			}
+			if( iNext != iDay ) {
+				iDay = iNext;
+				iHour = iMinute = iSecond = 0;
+			}
+			iNext = nextBit( lHours, iHour );
+			if( iNext < 0 ) {
+				iDay++;
+				iHour = iMinute = iSecond = 0;
+				continue;
+			}
+			if( iNext != iHour ) {
+				iHour = iNext;
+				iMinute = iSecond = 0;
+			}
+			iNext = nextBit( lMinutes, iMinute );
+			if( iNext < 0 ) {
+				iHour++;
+				iMinute = iSecond = 0;
+				continue;
+			}
+			if( iNext != iMinute ) {
+				iMinute = iNext;
+				iSecond = 0;
+			}
+			iNext = nextBit( lSeconds, iSecond );
+			if( iNext < 0 ) {
+				iMinute++;
+				iSecond = 0;
+				continue;
+			}
+			return( LocalDateTime.of( iYear, iMonth, iDay, iHour, iMinute, iNext ) );
+		}
+	}
+
+	/**
+	 * Returns the first matching day of the month at or after the specified one
+	 *
+	 * @param iYear the year
+	 * @param iMonth the month
+	 * @param iFrom the start day, may be past the month end
+	 *
+	 * @return the day or -1 if there is none in the month
+	 */
+	private int nextDay( int iYear, int iMonth, int iFrom ) {
+		int iLength = LocalDate.of( iYear, iMonth, 1 ).lengthOfMonth( );
+		if( iFrom > iLength ) {
+			return( -1 );
+		}
+		if( !bDayOfWeek && !bLastDay && iNearestWeekday == 0 ) {
+			int iDay = nextBit( lDaysOfMonth, iFrom );
+			return( iDay > iLength ? -1 : iDay );
+		}
+		// day of week of the first day, 1 (SUN) - 7 (SAT)
+		int iFirstDow = toQuartz( LocalDate.of( iYear, iMonth, 1 ).getDayOfWeek( ) );
+		if( !bDayOfWeek ) {
+			int iTarget = getDayOfMonth( iLength, iFirstDow );
+			return( iTarget >= iFrom ? iTarget : -1 );
+		}
+		for( int iDay = iFrom; iDay <= iLength; iDay++ ) {
+			int iDow = ( iFirstDow - 1 + iDay - 1 ) % 7 + 1;
+			if( iLastDayOfWeek > 0 ) {
+				if( iDow == iLastDayOfWeek && iDay + 7 > iLength ) {
+					return( iDay );
+				}
+			} else if( iNth > 0 ) {
+				if( iDow == iNthDayOfWeek && ( iDay - 1 ) / 7 + 1 == iNth ) {
+					return( iDay );
+				}
+			} else if( ( lDaysOfWeek & ( 1L << iDow ) ) != 0 ) {
+				return( iDay );
+			}
+		}
+		return( -1 );
+	}
+
+	/**
+	 * Returns the day of month for 'L', 'L-n', 'LW' and 'nW'
+	 *
+	 * @param iLength the month length
+	 * @param iFirstDow the day of week of the first day
+	 *
+	 * @return the day or -1 if the month has no such day
+	 */
+	private int getDayOfMonth( int iLength, int iFirstDow ) {
+		int iDay = bLastDay ? iLength - iLastDayOffset : iNearestWeekday;
+		if( iDay < 1 || iDay > iLength ) {
+			return( -1 );
+		}
+		if( bLastWeekday || iNearestWeekday > 0 ) {
+			int iDow = ( iFirstDow - 1 + iDay - 1 ) % 7 + 1;
+			if( iDow == 7 ) {
+				// saturday
+				iDay = iDay == 1 ? 3 : iDay - 1;
+			} else if( iDow == 1 ) {
+				// sunday
+				iDay = iDay == iLength ? iDay - 2 : iDay + 1;
+			}
+		}
+		return( iDay );
+	}
+
+	/**
+	 * Parses day of month field
+	 *
+	 * @param s the field
+	 *
+	 * @throws ParseException
+	 */
+	private void parseDayOfMonth( String s ) throws ParseException {
+		if( "?".equals( s ) ) {
+			return;
+		}
+		if( s.startsWith( "L" ) ) {
+			bLastDay = true;
+			String sRest = s.substring( 1 );
+			if( sRest.equals( "W" ) ) {
+				bLastWeekday = true;
+			} else if( sRest.startsWith( "-" ) ) {
+				iLastDayOffset = parseValue( sRest.substring( 1 ), 0, 30, null, s );
+			} else if( !sRest.isEmpty( ) ) {
+				throw new ParseException( "Invalid day of month: " + s, 0 );
+			}
+			return;
+		}
+		if( s.endsWith( "W" ) ) {
+			iNearestWeekday = parseValue( s.substring( 0, s.length( ) - 1 ), 1, 31, null, s );
+			return;
+		}
+		lDaysOfMonth = parse( s, 1, 31, null );
+	}
+
+	/**
+	 * Parses day of week field
+	 *
+	 * @param s the field
+	 *
+	 * @throws ParseException
+	 */
+	private void parseDayOfWeek( String s ) throws ParseException {
+		if( "?".equals( s ) ) {
+			return;
+		}
+		bDayOfWeek = true;
+		int iHash = s.indexOf( '#' );
+		if( iHash >= 0 ) {
+			iNthDayOfWeek = parseValue( s.substring( 0, iHash ), 1, 7, DAYS, s );
+			iNth = parseValue( s.substring( iHash + 1 ), 1, 5, null, s );
+		} else if( s.equals( "L" ) ) {
+			// saturday
+			lDaysOfWeek = 1L << 7;
+		} else if( s.endsWith( "L" ) ) {
+			iLastDayOfWeek = parseValue( s.substring( 0, s.length( ) - 1 ), 1, 7, DAYS, s );
+		} else {
+			lDaysOfWeek = parse( s, 1, 7, DAYS );
+		}
+	}
+
+	/**
+	 * Parses year field
+	 *
+	 * @param s the field
+	 *
+	 * @return the years bit set
+	 *
+	 * @throws ParseException
+	 */
+	private static BitSet parseYears( String s ) throws ParseException {
+		BitSet bits = new BitSet( MAX_YEAR + 1 );
+		for( String sItem : s.split( ",", -1 ) ) {
+			int[] range = parseRange( sItem, MIN_YEAR, MAX_YEAR, null );
+			if( range[ 0 ] > range[ 1 ] ) {
+				throw new ParseException( "Invalid year range: " + sItem, 0 );
+			}
+			for( int i = range[ 0 ]; i <= range[ 1 ]; i += range[ 2 ] ) {
+				bits.set( i );
+			}
+		}
+		return( bits );
+	}
+
+	/**
+	 * Parses field of lists, ranges and increments into the bit set
+	 *
+	 * @param s the field
+	 * @param iMin the minimum value
+	 * @param iMax the maximum value
+	 * @param names the value names starting from the minimum, may be null
+	 *
+	 * @return the bit set, bit i is set if value i is allowed
+	 *
+	 * @throws ParseException
+	 */
+	private static long parse( String s, int iMin, int iMax, String[] names ) throws ParseException {
+		long lBits = 0;
+		int iSpan = iMax - iMin + 1;
+		for( String sItem : s.split( ",", -1 ) ) {
+			int[] range = parseRange( sItem, iMin, iMax, names );
+			int iEnd = range[ 1 ] >= range[ 0 ] ? range[ 1 ] : range[ 1 ] + iSpan;
+			for( int i = range[ 0 ]; i <= iEnd; i += range[ 2 ] ) {
+				lBits |= 1L << ( ( i - iMin ) % iSpan + iMin );
+			}
+		}
+		return( lBits );
+	}
+
+	/**
+	 * Parses list item: '*', value, range, with optional increment
+	 *
+	 * @param sItem the item
+	 * @param iMin the minimum value
+	 * @param iMax the maximum value
+	 * @param names the value names, may be null
+	 *
+	 * @return the start, end (less than start if range wraps) and increment
+	 *
+	 * @throws ParseException
+	 */
+	private static int[] parseRange( String sItem, int iMin, int iMax, String[] names ) throws ParseException {
+		String sRange = sItem;
+		int iStep = 1;
+		int iSlash = sItem.indexOf( '/' );
+		if( iSlash >= 0 ) {
+			sRange = sItem.substring( 0, iSlash );
+			iStep = parseValue( sItem.substring( iSlash + 1 ), 1, iMax, null, sItem );
+			if( names != null && sRange.chars( ).anyMatch( Character::isLetter ) ) {
+				// quartz applies increments to names its own way
+				throw new ParseException( "Name with increment: " + sItem, 0 );
+			}
+		}
+		if( sRange.isEmpty( ) || sRange.equals( "*" ) ) {
+			if( sRange.isEmpty( ) && iSlash < 0 ) {
+				throw new ParseException( "Empty list item", 0 );
+			}
+			return( new int[] { iMin, iMax, iStep } );
+		}
+		int iDash = sRange.indexOf( '-' );
+		if( iDash < 0 ) {
+			int iValue = parseValue( sRange, iMin, iMax, names, sItem );
+			return( new int[] { iValue, iSlash >= 0 ? iMax : iValue, iStep } );
+		}
+		return(
+			new int[] {
+				parseValue( sRange.substring( 0, iDash ), iMin, iMax, names, sItem ),
+				parseValue( sRange.substring( iDash + 1 ), iMin, iMax, names, sItem ),
+				iStep
+			}
+		);
+	}
+
+	/**
+	 * Parses single value
+	 *
+	 * @param s the value, number or name
+	 * @param iMin the minimum value
+	 * @param iMax the maximum value
+	 * @param names the value names, may be null
+	 * @param sItem the item for the error message
+	 *
+	 * @return the value
+	 *
+	 * @throws ParseException
+	 */
+	private static int parseValue( String s, int iMin, int iMax, String[] names, String sItem ) throws ParseException {
+		int iValue = -1;
+		if( names != null ) {
+			for( int i = 0; i < names.length; i++ ) {
+				if( names[ i ].equals( s ) ) {
+					iValue = iMin + i;
+					break;
+				}
+			}
+		}
+		if( iValue < 0 ) {
+			try {
+				iValue = Integer.parseInt( s );
+			}
+			catch( NumberFormatException e ) {
+				throw new ParseException( "Invalid value '" + s + "' in " + sItem, 0 );
+			}
+		}
+		if( iValue < iMin || iValue > iMax ) {
+			throw new ParseException( "Value " + iValue + " out of range " + iMin + "-" + iMax + " in " + sItem, 0 );
+		}
+		return( iValue );
+	}
+
+	/**
+	 * Returns the least set bit at or after the position
+	 *
+	 * @param lBits the bits
+	 * @param iFrom the position
+	 *
+	 * @return the bit index or -1 if there is none
+	 */
+	private static int nextBit( long lBits, int iFrom ) {
+		if( iFrom > 63 ) {
+			return( -1 );
+		}
+		long lMasked = lBits & ( -1L << iFrom );
+		return( lMasked == 0 ? -1 : Long.numberOfTrailingZeros( lMasked ) );
+	}
+
+	/**
+	 * Converts day of week to the quartz numbering
+	 *
+	 * @param dow the day of week
+	 *
+	 * @return the day from 1 (SUN) to 7 (SAT)
+	 */
+	private static int toQuartz( DayOfWeek dow ) {
+		return( dow.getValue( ) % 7 + 1 );
+	}
+}
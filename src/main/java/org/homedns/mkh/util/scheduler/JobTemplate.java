@@ -18,9 +18,9 @@
 
 package org.homedns.mkh.util.scheduler;
 
+import java.text.ParseException;
 import java.util.regex.Pattern;
 
-import org.homedns.mkh.util.Util;
 import org.quartz.Job;
 import org.quartz.JobDataMap;
 import org.quartz.JobDetail;
@@ -100,7 +100,9 @@ public interface JobTemplate {
 	}
 	
 	/**
-	 * Returns true if input string is valid cron expression and false otherwise
+	 * Returns true if input string is valid cron expression and false otherwise.
+	 * The expressions quartz accepts are valid, the expression is compiled once
+	 * and cached, see {@link CronSchedule#compile(String)}
 	 * 
 	 * @param s
 	 *            the string to test on valid cron expression
@@ -108,9 +110,11 @@ public interface JobTemplate {
 	 * @return true if the string is a valid cron expression, false otherwise.
 	 */
 	public default boolean isValidCronExp( String sCron ) throws SchedulerException { 
-		if( !Util.isValid( CRON_EXP_PATTERN, sCron ) ) {
-			SchedulerException e = new SchedulerException( sCron );
-			throw e;			
+		try {
+			CronSchedule.compile( sCron );
+		}
+		catch( ParseException e ) {
+			throw new SchedulerException( sCron, e );
 		}
 	  return( true );  
 	}
@@ -19,23 +19,16 @@
 package org.homedns.mkh.util.scheduler;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Properties;
 import org.apache.log4j.Logger;
-import org.homedns.mkh.util.Util;
-import org.quartz.CronScheduleBuilder;
-import org.quartz.CronTrigger;
-import org.quartz.JobBuilder;
-import org.quartz.JobDetail;
-import org.quartz.JobExecutionContext;
 import org.quartz.JobKey;
 import org.quartz.Scheduler;
 import org.quartz.SchedulerException;
-import org.quartz.Trigger;
-import org.quartz.Trigger.CompletedExecutionInstruction;
 import org.quartz.impl.StdSchedulerFactory;
-import org.quartz.TriggerBuilder;
 import org.quartz.TriggerKey;
-import org.quartz.listeners.TriggerListenerSupport;
 
 /**
  * Scheduler helper object
@@ -44,11 +37,23 @@ import org.quartz.listeners.TriggerListenerSupport;
 public class SchedulerHelper {
 	private static final Logger LOG = Logger.getLogger( SchedulerHelper.class );
 
+	/**
+	 * Group of all jobs created by the helper
+	 */
+	public static final String JOB_GROUP = "jobs";
+	/**
+	 * Group of all triggers created by the helper
+	 */
+	public static final String TRIGGER_GROUP = "triggers";
+
 	public static Scheduler scheduler;
+	private static final SchedulerMetrics METRICS = new SchedulerMetrics( );
 	static {
 		try {
-			scheduler = StdSchedulerFactory.getDefaultScheduler( );
-			scheduler.getListenerManager( ).addTriggerListener( new TriggerListener( ) );		
+			Properties config = SchedulerOps.getApplicationProperties( );
+			scheduler = createScheduler( config );
+			SchedulerOps.addTriggerListener( scheduler, config );
+			METRICS.register( scheduler );
 		}
 		catch( SchedulerException e ) {
 			LOG.error( e.getMessage( ), e );
@@ -56,7 +61,9 @@ public class SchedulerHelper {
 	}
 	
 	/**
-	 * Schedules jobs, which are created from specified job templates list
+	 * Schedules jobs, which are created from specified job templates list.
+	 * All templates are validated first, nothing is scheduled if any of them
+	 * is invalid, valid jobs are submitted to the scheduler in one call.
 	 * 
 	 * @param jobTmps the job templates list
 	 * 
@@ -65,13 +72,24 @@ public class SchedulerHelper {
 	 * @throws SchedulerException
 	 */
 	public static List< TriggerKey > scheduleJobs( List< JobTemplate > jobTmps ) throws SchedulerException {
-		List< TriggerKey > triggerKeys = new ArrayList< >( );
-		for( JobTemplate tmp : jobTmps ) {
-			triggerKeys.add( scheduleJob( tmp ) );
-		}
-		return( triggerKeys );
+		return( SchedulerOps.scheduleJobs( scheduler, jobTmps ) );
 	}
-	
+
+	/**
+	 * Schedules jobs, which are created from specified job templates list,
+	 * in one scheduler call. Templates are validated and jobs are built in
+	 * parallel for large lists, invalid templates are reported in the result
+	 * and do not prevent scheduling of the others.
+	 * 
+	 * @param jobTmps the job templates list
+	 * @param bReplace if true existing jobs and triggers with the same keys are replaced
+	 * 
+	 * @return the schedule result
+	 */
+	public static ScheduleResult scheduleJobs( List< JobTemplate > jobTmps, boolean bReplace ) {
+		return( SchedulerOps.scheduleJobs( scheduler, jobTmps, bReplace ) );
+	}
+
 	/**
 	 * Schedules job which is created from specified job template
 	 * 
@@ -82,14 +100,9 @@ public class SchedulerHelper {
 	 * @throws SchedulerException
 	 */
 	public static TriggerKey scheduleJob( JobTemplate jobTmp ) throws SchedulerException {
-		Trigger trigger = createTrigger( jobTmp );
-		JobDetail jd = createJob( jobTmp );
-		jobTmp.setJobDetail( jd );
-		scheduler.scheduleJob( jd, trigger );
-		LOG.info( jobTmp.getName( ) + " is scheduled successfully. Schedule: " + jobTmp.getCronExp( ) );
-		return( trigger.getKey( ) );
+		return( SchedulerOps.scheduleJob( scheduler, jobTmp ) );
 	}
-	
+
 	/**
 	 * Unschedules job
 	 * 
@@ -111,13 +124,9 @@ public class SchedulerHelper {
 	 * @throws SchedulerException
 	 */
 	public static List< JobKey > addJobs( List< JobTemplate > jobTmps ) throws SchedulerException {
-		List< JobKey > jobKeys = new ArrayList< >( );
-		for( JobTemplate tmp : jobTmps ) {
-			jobKeys.add( addJob( tmp ) );
-		}	
-		return( jobKeys );
+		return( SchedulerOps.addJobs( scheduler, jobTmps ) );
 	}
-	
+
 	/**
 	 * Adds job to the scheduler for later use, it is created using specified job template
 	 * 
@@ -128,106 +137,91 @@ public class SchedulerHelper {
 	 * @throws SchedulerException
 	 */
 	public static JobKey addJob( JobTemplate jobTmp ) throws SchedulerException {
-		JobDetail jd = createJob( jobTmp );
-		scheduler.addJob( jd, false );
-		return( jd.getKey( ) );
+		return( SchedulerOps.addJob( scheduler, jobTmp ) );
 	}
 
 	/**
-	 * Creates job using specified job template
-	 * 
-	 * @param tmp the job template
+	 * Returns job execution metrics of the default scheduler
 	 * 
-	 * @return the job
-	 * 
-	 * @throws SchedulerException
+	 * @return the metrics
 	 */
-	private static JobDetail createJob( JobTemplate tmp ) throws SchedulerException {
-		JobKey key = generateJobKey( );
-		JobBuilder jbuilder = JobBuilder
-			.newJob( tmp.getJobClazz( ) )
-			.withIdentity( key )
-			.usingJobData( "name", tmp.getName( ) );
-		jbuilder = ( tmp.getJobData( ) == null ) ? jbuilder : jbuilder.usingJobData( tmp.getJobData( ) );
-		return( jbuilder.build( ) );
+	public static SchedulerMetrics getMetrics( ) {
+		return( METRICS );
 	}
-		
+
 	/**
-	 * Creates trigger using specified job template
+	 * Creates default scheduler. Quartz properties are resolved the way quartz
+	 * does it, {@link CompactRAMJobStore} is used instead of the plain RAM job
+	 * store unless the application configures the job store class.
 	 * 
-	 * @param tmp the job template
+	 * @param config the properties resolved by {@link SchedulerOps#getApplicationProperties()}
 	 * 
-	 * @return the trigger
+	 * @return the scheduler
 	 * 
 	 * @throws SchedulerException
 	 */
-	private static CronTrigger createTrigger( JobTemplate tmp ) throws SchedulerException {
-		tmp.isValidCronExp( tmp.getCronExp( ) );
-		CronScheduleBuilder csb = CronScheduleBuilder.cronSchedule( tmp.getCronExp( ) );
-		CronTrigger trigger = TriggerBuilder
-			.newTrigger( )
-			.withIdentity( generateTriggerKey( ) )
-			.withSchedule( csb )
-			.build( );
-		return( trigger );
+	private static Scheduler createScheduler( Properties config ) throws SchedulerException {
+		return( new StdSchedulerFactory( config ).getScheduler( ) );
 	}
 
 	/**
-	 * Generates job key
-	 * 
-	 * @return the job key
+	 * Bulk scheduling result
 	 */
-	private static JobKey generateJobKey( ) {
-		String sUID = Util.getGUID( );
-		return( JobKey.jobKey( sUID, "group_" + sUID ) );
-	}
-	
-	/**
-	 * Generates trigger key
-	 * 
-	 * @return the trigger key
-	 */
-	private static TriggerKey generateTriggerKey( ) {
-		String sUID = Util.getGUID( );
-		return( TriggerKey.triggerKey( sUID, "group_" + sUID ) ); 
-	}
-	
-	private static class TriggerListener extends TriggerListenerSupport {
+	public static class ScheduleResult {
+		private final List< TriggerKey > triggerKeys;
+		private final Map< Integer, Exception > failures = new LinkedHashMap< >( );
+
+		ScheduleResult( int iSize ) {
+			triggerKeys = new ArrayList< >( iSize );
+		}
+
+		/**
+		 * Adds key of the scheduled job trigger
+		 * 
+		 * @param triggerKey the trigger key
+		 */
+		void add( TriggerKey triggerKey ) {
+			triggerKeys.add( triggerKey );
+		}
+
+		/**
+		 * Adds failure of the template
+		 * 
+		 * @param iIndex the job template index in the list
+		 * @param e the failure
+		 */
+		void addFailure( int iIndex, Exception e ) {
+			triggerKeys.add( null );
+			failures.put( iIndex, e );
+		}
 
 		/**
-		 * @see org.quartz.TriggerListener#getName()
+		 * Returns trigger keys in the templates order, null for the failed templates
+		 * 
+		 * @return the trigger key list
 		 */
-		@Override
-		public String getName( ) {
-			return( "xxx" );
+		public List< TriggerKey > getTriggerKeys( ) {
+			return( triggerKeys );
 		}
 
 		/**
-		 * @see org.quartz.listeners.TriggerListenerSupport#triggerFired(org.quartz.Trigger, org.quartz.JobExecutionContext)
+		 * Returns failures of the templates which are not scheduled by their
+		 * index in the templates list, so the same template listed twice has
+		 * two entries
+		 * 
+		 * @return the failures map in the templates order, empty if all jobs are scheduled
 		 */
-		@Override
-		public void triggerFired( Trigger trigger, JobExecutionContext context ) {
-			LOG.debug( context.getJobDetail( ).getJobDataMap( ).get( "name" ) + " is fired" );
+		public Map< Integer, Exception > getFailures( ) {
+			return( failures );
 		}
 
 		/**
-		 * @see org.quartz.listeners.TriggerListenerSupport#triggerComplete(org.quartz.Trigger, org.quartz.JobExecutionContext, org.quartz.Trigger.CompletedExecutionInstruction)
+		 * Returns true if all jobs are scheduled
+		 * 
+		 * @return true if there are no failures
 		 */
-	    @Override
-		public void triggerComplete( 
-			Trigger trigger,
-			JobExecutionContext context,
-			CompletedExecutionInstruction triggerInstructionCode 
-		) {
-			try {
-				if( triggerInstructionCode == CompletedExecutionInstruction.SET_TRIGGER_COMPLETE ) {
-					LOG.info( context.getJobDetail( ).getJobDataMap( ).get( "name" ) + ": is unscheduled" );
-					scheduler.unscheduleJob( trigger.getKey( ) );
-				}
-			} 
-			catch( Exception e ) {
-				LOG.error( e.getMessage( ), e );
-			}
+		public boolean isSuccess( ) {
+			return( failures.isEmpty( ) );
 		}
 	}
-}
\ No newline at end of file
+}
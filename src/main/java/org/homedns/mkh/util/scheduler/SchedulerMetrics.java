@@ -0,0 +1,569 @@
+/*
+ * Copyright 2026 Mikhail Khodonov.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.homedns.mkh.util.scheduler;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.quartz.JobKey;
+import org.quartz.JobListener;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.quartz.Trigger;
+import org.quartz.Trigger.CompletedExecutionInstruction;
+import org.quartz.TriggerListener;
+
+/**
+ * In process job execution metrics, aggregated per job template name. Fire
+ * latency is the delay between the scheduled and the actual fire time, it
+ * grows when all worker threads are busy. Duration above the interval to the
+ * next scheduled fire time is counted as overrun. Recording is lock free,
+ * snapshots are consistent per counter but not across counters.
+ *
+ */
+public class SchedulerMetrics implements JobListener, TriggerListener {
+	/**
+	 * Number of histogram buckets, bucket i counts values from 2^(i-1) to 2^i - 1 ms
+	 */
+	public static final int BUCKETS = 32;
+
+	private static final String NAME = "metrics";
+
+	private final Map< String, Accumulator > jobs = new ConcurrentHashMap< >( );
+	private final Map< String, Execution > running = new ConcurrentHashMap< >( );
+	private final AtomicInteger iRunning = new AtomicInteger( );
+	private final AtomicInteger iMaxRunning = new AtomicInteger( );
+
+	/**
+	 * Registers metrics as the job and trigger listener of the scheduler
+	 *
+	 * @param scheduler the scheduler
+	 *
+	 * @throws SchedulerException
+	 */
+	public void register( Scheduler scheduler ) throws SchedulerException {
+		scheduler.getListenerManager( ).addJobListener( this );
+		scheduler.getListenerManager( ).addTriggerListener( this );
+	}
+
+	/**
+	 * Returns stats of all jobs, the largest total duration first
+	 *
+	 * @return the stats list
+	 */
+	public List< JobStats > snapshot( ) {
+		List< JobStats > list = new ArrayList< >( jobs.size( ) );
+		for( Map.Entry< String, Accumulator > entry : jobs.entrySet( ) ) {
+			list.add( entry.getValue( ).snapshot( entry.getKey( ) ) );
+		}
+		list.sort( ( a, b ) -> Long.compare( b.lTotalDuration, a.lTotalDuration ) );
+		return( list );
+	}
+
+	/**
+	 * Returns the slowest jobs by the 95th percentile of duration
+	 *
+	 * @param iCount the maximum number of jobs to return
+	 *
+	 * @return the slowest jobs, the slowest first
+	 */
+	public List< JobStats > getSlowest( int iCount ) {
+		List< JobStats > list = snapshot( );
+		list.sort( ( a, b ) -> {
+			int iResult = Long.compare( b.getDurationPercentile( 0.95 ), a.getDurationPercentile( 0.95 ) );
+			return( iResult != 0 ? iResult : Long.compare( b.lMaxDuration, a.lMaxDuration ) );
+		} );
+		return( list.size( ) > iCount ? new ArrayList< >( list.subList( 0, iCount ) ) : list );
+	}
+
+	/**
+	 * Returns jobs running now, the longest running first
+	 *
+	 * @return the running jobs
+	 */
+	public List< Execution > getRunning( ) {
+		List< Execution > list = new ArrayList< >( running.values( ) );
+		list.sort( ( a, b ) -> Long.compare( a.lStart, b.lStart ) );
+		return( list );
+	}
+
+	/**
+	 * Returns number of jobs running now
+	 *
+	 * @return the running jobs count
+	 */
+	public int getRunningCount( ) {
+		return( iRunning.get( ) );
+	}
+
+	/**
+	 * Returns maximum number of jobs run at once, compare it with the thread count
+	 *
+	 * @return the maximum running jobs count
+	 */
+	public int getMaxRunningCount( ) {
+		return( iMaxRunning.get( ) );
+	}
+
+	/**
+	 * Clears stats of the completed jobs
+	 */
+	public void reset( ) {
+		jobs.clear( );
+		iMaxRunning.set( iRunning.get( ) );
+	}
+
+	/**
+	 * @see org.quartz.JobListener#getName()
+	 */
+	@Override
+	public String getName( ) {
+		return( NAME );
+	}
+
+	/**
+	 * @see org.quartz.JobListener#jobToBeExecuted(org.quartz.JobExecutionContext)
+	 */
+	@Override
+	public void jobToBeExecuted( JobExecutionContext context ) {
+		String sName = getName( context.getJobDetail( ).getJobDataMap( ).getString( "name" ), context.getJobDetail( ).getKey( ) );
+		Accumulator acc = getAccumulator( sName );
+		long lLatency = latency( context.getScheduledFireTime( ), context.getFireTime( ) );
+		acc.latency.record( lLatency );
+		iMaxRunning.accumulateAndGet( iRunning.incrementAndGet( ), Math::max );
+		acc.maxRunning.accumulateAndGet( acc.running.incrementAndGet( ), Math::max );
+		running.put( context.getFireInstanceId( ), new Execution( sName, context.getFireTime( ), acc ) );
+	}
+
+	/**
+	 * @see org.quartz.JobListener#jobExecutionVetoed(org.quartz.JobExecutionContext)
+	 */
+	@Override
+	public void jobExecutionVetoed( JobExecutionContext context ) {
+		String sName = getName( context.getJobDetail( ).getJobDataMap( ).getString( "name" ), context.getJobDetail( ).getKey( ) );
+		getAccumulator( sName ).vetoed.increment( );
+	}
+
+	/**
+	 * @see org.quartz.JobListener#jobWasExecuted(org.quartz.JobExecutionContext, org.quartz.JobExecutionException)
+	 */
+	@Override
+	public void jobWasExecuted( JobExecutionContext context, JobExecutionException jobException ) {
+		Execution execution = running.remove( context.getFireInstanceId( ) );
+		if( execution == null ) {
+			// started before the listener registration
+			return;
+		}
+		iRunning.decrementAndGet( );
+		// concurrency is counted by the accumulator the job started with, it may be reset since
+		execution.acc.running.decrementAndGet( );
+		Accumulator acc = getAccumulator( execution.sName );
+		long lDuration = Math.max( context.getJobRunTime( ), 0L );
+		acc.count.increment( );
+		acc.duration.record( lDuration );
+		if( jobException != null ) {
+			acc.failed.increment( );
+		}
+		Date scheduled = context.getScheduledFireTime( );
+		Date next = context.getNextFireTime( );
+		if( scheduled != null && next != null && lDuration > next.getTime( ) - scheduled.getTime( ) ) {
+			acc.overruns.increment( );
+		}
+	}
+
+	/**
+	 * @see org.quartz.TriggerListener#triggerMisfired(org.quartz.Trigger)
+	 */
+	@Override
+	public void triggerMisfired( Trigger trigger ) {
+		getAccumulator( getName( trigger.getJobDataMap( ).getString( "name" ), trigger.getJobKey( ) ) ).misfired.increment( );
+	}
+
+	/**
+	 * @see org.quartz.TriggerListener#triggerFired(org.quartz.Trigger, org.quartz.JobExecutionContext)
+	 */
+	@Override
+	public void triggerFired( Trigger trigger, JobExecutionContext context ) {
+	}
+
+	/**
+	 * @see org.quartz.TriggerListener#vetoJobExecution(org.quartz.Trigger, org.quartz.JobExecutionContext)
+	 */
+	@Override
+	public boolean vetoJobExecution( Trigger trigger, JobExecutionContext context ) {
+		return( false );
+	}
+
+	/**
+	 * @see org.quartz.TriggerListener#triggerComplete(org.quartz.Trigger, org.quartz.JobExecutionContext, org.quartz.Trigger.CompletedExecutionInstruction)
+	 */
+	@Override
+	public void triggerComplete(
+		Trigger trigger,
+		JobExecutionContext context,
+		CompletedExecutionInstruction triggerInstructionCode
+	) {
+	}
+
+	/**
+	 * Returns job accumulator
+	 *
+	 * @param sName the job name
+	 *
+	 * @return the accumulator
+	 */
+	private Accumulator getAccumulator( String sName ) {
+		Accumulator acc = jobs.get( sName );
+		if( acc == null ) {
+			acc = jobs.computeIfAbsent( sName, k -> new Accumulator( ) );
+		}
+		return( acc );
+	}
+
+	/**
+	 * Returns template name or job key name if the job has no template name
+	 *
+	 * @param sName the template name
+	 * @param jobKey the job key
+	 *
+	 * @return the name
+	 */
+	private static String getName( String sName, JobKey jobKey ) {
+		return( sName != null ? sName : jobKey == null ? "" : jobKey.getName( ) );
+	}
+
+	/**
+	 * Returns fire latency
+	 *
+	 * @param scheduled the scheduled fire time
+	 * @param fired the actual fire time
+	 *
+	 * @return the latency, ms
+	 */
+	private static long latency( Date scheduled, Date fired ) {
+		return( scheduled == null || fired == null ? 0L : Math.max( fired.getTime( ) - scheduled.getTime( ), 0L ) );
+	}
+
+	/**
+	 * Running job
+	 */
+	public static class Execution {
+		private final String sName;
+		private final Date fireTime;
+		private final long lStart = System.nanoTime( );
+		private final Accumulator acc;
+
+		Execution( String sName, Date fireTime, Accumulator acc ) {
+			this.sName = sName;
+			this.fireTime = fireTime;
+			this.acc = acc;
+		}
+
+		/**
+		 * Returns job name
+		 *
+		 * @return the name
+		 */
+		public String getName( ) {
+			return( sName );
+		}
+
+		/**
+		 * Returns actual fire time
+		 *
+		 * @return the fire time
+		 */
+		public Date getFireTime( ) {
+			return( fireTime );
+		}
+
+		/**
+		 * Returns time since the job start, ms
+		 *
+		 * @return the elapsed time
+		 */
+		public double getElapsed( ) {
+			return( ( System.nanoTime( ) - lStart ) / 1e6 );
+		}
+
+		/**
+		 * @see java.lang.Object#toString()
+		 */
+		@Override
+		public String toString( ) {
+			return( String.format( "%s running %.0f ms", sName, getElapsed( ) ) );
+		}
+	}
+
+	/**
+	 * Job stats snapshot, times are in ms
+	 */
+	public static class JobStats {
+		private final String sName;
+		private final long lCount;
+		private final long lFailed;
+		private final long lVetoed;
+		private final long lMisfired;
+		private final long lOverruns;
+		private final int iRunning;
+		private final int iMaxRunning;
+		private final long lTotalLatency;
+		private final long lMaxLatency;
+		private final long[] latencyHistogram;
+		private final long lTotalDuration;
+		private final long lMaxDuration;
+		private final long[] durationHistogram;
+
+		JobStats( String sName, Accumulator acc ) {
+			this.sName = sName;
+			lCount = acc.count.sum( );
+			lFailed = acc.failed.sum( );
+			lVetoed = acc.vetoed.sum( );
+			lMisfired = acc.misfired.sum( );
+			lOverruns = acc.overruns.sum( );
+			iRunning = acc.running.get( );
+			iMaxRunning = acc.maxRunning.get( );
+			lTotalLatency = acc.latency.total.sum( );
+			lMaxLatency = acc.latency.max.get( );
+			latencyHistogram = acc.latency.buckets( );
+			lTotalDuration = acc.duration.total.sum( );
+			lMaxDuration = acc.duration.max.get( );
+			durationHistogram = acc.duration.buckets( );
+		}
+
+		/**
+		 * Returns job template name
+		 */
+		public String getName( ) {
+			return( sName );
+		}
+
+		/**
+		 * Returns number of completed executions
+		 */
+		public long getCount( ) {
+			return( lCount );
+		}
+
+		/**
+		 * Returns number of executions completed with exception
+		 */
+		public long getFailed( ) {
+			return( lFailed );
+		}
+
+		/**
+		 * Returns share of the failed executions
+		 */
+		public double getFailureRate( ) {
+			return( lCount == 0 ? 0 : ( double )lFailed / lCount );
+		}
+
+		/**
+		 * Returns number of executions vetoed by trigger listeners
+		 */
+		public long getVetoed( ) {
+			return( lVetoed );
+		}
+
+		/**
+		 * Returns number of misfires
+		 */
+		public long getMisfired( ) {
+			return( lMisfired );
+		}
+
+		/**
+		 * Returns number of executions longer than the interval to the next fire time
+		 */
+		public long getOverruns( ) {
+			return( lOverruns );
+		}
+
+		/**
+		 * Returns number of executions running at the snapshot time
+		 */
+		public int getRunning( ) {
+			return( iRunning );
+		}
+
+		/**
+		 * Returns maximum number of concurrent executions
+		 */
+		public int getMaxRunning( ) {
+			return( iMaxRunning );
+		}
+
+		/**
+		 * Returns average fire latency
+		 */
+		public double getAvgLatency( ) {
+			long lFired = sum( latencyHistogram );
+			return( lFired == 0 ? 0 : ( double )lTotalLatency / lFired );
+		}
+
+		/**
+		 * Returns maximum fire latency
+		 */
+		public long getMaxLatency( ) {
+			return( lMaxLatency );
+		}
+
+		/**
+		 * Returns fire latency histogram, see {@link SchedulerMetrics#BUCKETS}
+		 */
+		public long[] getLatencyHistogram( ) {
+			return( latencyHistogram.clone( ) );
+		}
+
+		/**
+		 * Returns upper bound of the fire latency percentile
+		 *
+		 * @param dPercentile the percentile from 0 to 1
+		 */
+		public long getLatencyPercentile( double dPercentile ) {
+			return( percentile( latencyHistogram, dPercentile, lMaxLatency ) );
+		}
+
+		/**
+		 * Returns average duration
+		 */
+		public double getAvgDuration( ) {
+			return( lCount == 0 ? 0 : ( double )lTotalDuration / lCount );
+		}
+
+		/**
+		 * Returns maximum duration
+		 */
+		public long getMaxDuration( ) {
+			return( lMaxDuration );
+		}
+
+		/**
+		 * Returns total duration
+		 */
+		public long getTotalDuration( ) {
+			return( lTotalDuration );
+		}
+
+		/**
+		 * Returns duration histogram, see {@link SchedulerMetrics#BUCKETS}
+		 */
+		public long[] getDurationHistogram( ) {
+			return( durationHistogram.clone( ) );
+		}
+
+		/**
+		 * Returns upper bound of the duration percentile
+		 *
+		 * @param dPercentile the percentile from 0 to 1
+		 */
+		public long getDurationPercentile( double dPercentile ) {
+			return( percentile( durationHistogram, dPercentile, lMaxDuration ) );
+		}
+
+		/**
+		 * @see java.lang.Object#toString()
+		 */
+		@Override
+		public String toString( ) {
+			return(
+				String.format(
+					"%s: count=%d failed=%d vetoed=%d misfired=%d overruns=%d running=%d/%d " +
+					"latency avg/p95/max=%.1f/%d/%d ms duration avg/p95/max=%.1f/%d/%d ms",
+					sName, lCount, lFailed, lVetoed, lMisfired, lOverruns, iRunning, iMaxRunning,
+					getAvgLatency( ), getLatencyPercentile( 0.95 ), lMaxLatency,
+					getAvgDuration( ), getDurationPercentile( 0.95 ), lMaxDuration
+				)
+			);
+		}
+
+		private static long sum( long[] histogram ) {
+			long lSum = 0;
+			for( long l : histogram ) {
+				lSum += l;
+			}
+			return( lSum );
+		}
+
+		private static long percentile( long[] histogram, double dPercentile, long lMax ) {
+			long lTotal = sum( histogram );
+			if( lTotal == 0 ) {
+				return( 0 );
+			}
+			long lRank = ( long )Math.ceil( dPercentile * lTotal );
+			long lSeen = 0;
+			for( int i = 0; i < histogram.length; i++ ) {
+				lSeen += histogram[ i ];
+				if( lSeen >= Math.max( lRank, 1 ) ) {
+					return( Math.min( i == 0 ? 0 : ( 1L << i ) - 1, lMax ) );
+				}
+			}
+			return( lMax );
+		}
+	}
+
+	/**
+	 * Log2 buckets histogram with total and maximum
+	 */
+	private static class Histogram {
+		private final AtomicLongArray counts = new AtomicLongArray( BUCKETS );
+		private final LongAdder total = new LongAdder( );
+		private final AtomicLong max = new AtomicLong( );
+
+		public void record( long lValue ) {
+			counts.incrementAndGet( Math.min( 64 - Long.numberOfLeadingZeros( lValue ), BUCKETS - 1 ) );
+			total.add( lValue );
+			max.accumulateAndGet( lValue, Math::max );
+		}
+
+		public long[] buckets( ) {
+			long[] al = new long[ BUCKETS ];
+			for( int i = 0; i < BUCKETS; i++ ) {
+				al[ i ] = counts.get( i );
+			}
+			return( al );
+		}
+	}
+
+	/**
+	 * Per job counters
+	 */
+	private static class Accumulator {
+		private final LongAdder count = new LongAdder( );
+		private final LongAdder failed = new LongAdder( );
+		private final LongAdder vetoed = new LongAdder( );
+		private final LongAdder misfired = new LongAdder( );
+		private final LongAdder overruns = new LongAdder( );
+		private final AtomicInteger running = new AtomicInteger( );
+		private final AtomicInteger maxRunning = new AtomicInteger( );
+		private final Histogram latency = new Histogram( );
+		private final Histogram duration = new Histogram( );
+
+		public JobStats snapshot( String sName ) {
+			return( new JobStats( sName, this ) );
+		}
+	}
+}
@@ -0,0 +1,505 @@
+/*
+ * Copyright 2014-2020 Mikhail Khodonov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * $Id$
+ */
+
+package org.homedns.mkh.util.scheduler;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.stream.IntStream;
+import org.apache.log4j.Logger;
+import org.homedns.mkh.util.id.IdCodec;
+import org.homedns.mkh.util.id.IdGenerator;
+import org.quartz.CronScheduleBuilder;
+import org.quartz.CronTrigger;
+import org.quartz.JobBuilder;
+import org.quartz.JobDetail;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobKey;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.quartz.Trigger;
+import org.quartz.Trigger.CompletedExecutionInstruction;
+import org.quartz.impl.StdSchedulerFactory;
+import org.quartz.TriggerBuilder;
+import org.quartz.TriggerKey;
+import org.quartz.listeners.TriggerListenerSupport;
+
+/**
+ * Scheduler operations used by {@link SchedulerHelper} and
+ * {@link SchedulerService}, they work on the passed scheduler and have no
+ * static state.
+ *
+ */
+final class SchedulerOps {
+	private static final Logger LOG = Logger.getLogger( SchedulerHelper.class );
+	private static final int PARALLEL_THRESHOLD = 256;
+
+	private SchedulerOps( ) {
+	}
+
+	/**
+	 * Schedules jobs, which are created from specified job templates list
+	 * 
+	 * @param scheduler the scheduler
+	 * @param jobTmps the job templates list
+	 * 
+	 * @return the trigger key list
+	 * 
+	 * @throws SchedulerException
+	 * 
+	 * @see SchedulerHelper#scheduleJobs(List)
+	 */
+	static List< TriggerKey > scheduleJobs( Scheduler scheduler, List< JobTemplate > jobTmps ) throws SchedulerException {
+		Prepared[] prepared = prepare( jobTmps );
+		for( Prepared p : prepared ) {
+			if( p.error != null ) {
+				throw p.error instanceof SchedulerException 
+					? ( SchedulerException )p.error 
+					: new SchedulerException( p.tmp.getName( ) + ": " + p.error.getMessage( ), p.error );
+			}
+		}
+		// scheduler failures are thrown, unlike the bulk result path
+		scheduler.scheduleJobs( toJobs( prepared ), false );
+		List< TriggerKey > triggerKeys = new ArrayList< >( prepared.length );
+		for( Prepared p : prepared ) {
+			p.tmp.setJobDetail( p.jobDetail );
+			triggerKeys.add( p.trigger.getKey( ) );
+		}
+		LOG.info( prepared.length + " jobs are scheduled successfully" );
+		return( triggerKeys );
+	}
+
+	/**
+	 * Schedules jobs, which are created from specified job templates list, in one scheduler call
+	 * 
+	 * @param scheduler the scheduler
+	 * @param jobTmps the job templates list
+	 * @param bReplace if true existing jobs and triggers with the same keys are replaced
+	 * 
+	 * @return the schedule result
+	 * 
+	 * @see SchedulerHelper#scheduleJobs(List, boolean)
+	 */
+	static SchedulerHelper.ScheduleResult scheduleJobs( Scheduler scheduler, List< JobTemplate > jobTmps, boolean bReplace ) {
+		return( submit( scheduler, prepare( jobTmps ), bReplace ) );
+	}
+	
+	/**
+	 * Schedules job which is created from specified job template
+	 * 
+	 * @param scheduler the scheduler
+	 * @param jobTmp the job template
+	 * 
+	 * @return the trigger key
+	 * 
+	 * @throws SchedulerException
+	 */
+	static TriggerKey scheduleJob( Scheduler scheduler, JobTemplate jobTmp ) throws SchedulerException {
+		Trigger trigger = createTrigger( jobTmp );
+		JobDetail jd = createJob( jobTmp );
+		jobTmp.setJobDetail( jd );
+		scheduler.scheduleJob( jd, trigger );
+		LOG.info( jobTmp.getName( ) + " is scheduled successfully. Schedule: " + jobTmp.getCronExp( ) );
+		return( trigger.getKey( ) );
+	}
+	
+	/**
+	 * Adds jobs to the scheduler for later use
+	 * 
+	 * @param scheduler the scheduler
+	 * @param jobTmps the job templates list
+	 * 
+	 * @return the job key list
+	 * 
+	 * @throws SchedulerException
+	 */
+	static List< JobKey > addJobs( Scheduler scheduler, List< JobTemplate > jobTmps ) throws SchedulerException {
+		List< JobKey > jobKeys = new ArrayList< >( );
+		for( JobTemplate tmp : jobTmps ) {
+			jobKeys.add( addJob( scheduler, tmp ) );
+		}	
+		return( jobKeys );
+	}
+	
+	/**
+	 * Adds job to the scheduler for later use
+	 * 
+	 * @param scheduler the scheduler
+	 * @param jobTmp the job template
+	 * 
+	 * @return the job key
+	 * 
+	 * @throws SchedulerException
+	 */
+	static JobKey addJob( Scheduler scheduler, JobTemplate jobTmp ) throws SchedulerException {
+		JobDetail jd = createJob( jobTmp );
+		scheduler.addJob( jd, false );
+		return( jd.getKey( ) );
+	}
+
+	/**
+	 * Creates job using specified job template
+	 * 
+	 * @param tmp the job template
+	 * 
+	 * @return the job
+	 * 
+	 * @throws SchedulerException
+	 */
+	private static JobDetail createJob( JobTemplate tmp ) throws SchedulerException {
+		JobKey key = generateJobKey( );
+		JobBuilder jbuilder = JobBuilder
+			.newJob( tmp.getJobClazz( ) )
+			.withIdentity( key )
+			.usingJobData( "name", tmp.getName( ) );
+		jbuilder = ( tmp.getJobData( ) == null ) ? jbuilder : jbuilder.usingJobData( tmp.getJobData( ) );
+		return( jbuilder.build( ) );
+	}
+		
+	/**
+	 * Creates trigger using specified job template
+	 * 
+	 * @param tmp the job template
+	 * 
+	 * @return the trigger
+	 * 
+	 * @throws SchedulerException
+	 */
+	private static CronTrigger createTrigger( JobTemplate tmp ) throws SchedulerException {
+		tmp.isValidCronExp( tmp.getCronExp( ) );
+		CronSchedule schedule;
+		try {
+			schedule = CronSchedule.compile( tmp.getCronExp( ) );
+		}
+		catch( ParseException e ) {
+			throw new SchedulerException( tmp.getCronExp( ), e );
+		}
+		// the cached parsed expression is copied instead of parsing the string again
+		CronScheduleBuilder csb = CronScheduleBuilder.cronSchedule( schedule.getCronExpression( ) );
+		TriggerBuilder< CronTrigger > tbuilder = TriggerBuilder
+			.newTrigger( )
+			.withIdentity( generateTriggerKey( ) )
+			.withSchedule( csb );
+		if( tmp.getJobData( ) == null || !tmp.getJobData( ).containsKey( "name" ) ) {
+			// lets trigger listeners name the job, e.g. on misfire, the merged job data is not changed
+			tbuilder = tbuilder.usingJobData( "name", tmp.getName( ) );
+		}
+		return( tbuilder.build( ) );
+	}
+
+	/**
+	 * Validates templates and builds jobs and triggers, in parallel if the list is large
+	 * 
+	 * @param jobTmps the job templates list
+	 * 
+	 * @return the prepared jobs in the templates order
+	 */
+	private static Prepared[] prepare( List< JobTemplate > jobTmps ) {
+		Prepared[] prepared = new Prepared[ jobTmps.size( ) ];
+		IntStream range = IntStream.range( 0, prepared.length );
+		if( prepared.length >= PARALLEL_THRESHOLD ) {
+			range = range.parallel( );
+		}
+		range.forEach( i -> prepared[ i ] = new Prepared( jobTmps.get( i ) ) );
+		return( prepared );
+	}
+
+	/**
+	 * Submits valid prepared jobs to the scheduler in one call
+	 * 
+	 * @param scheduler the scheduler
+	 * @param prepared the prepared jobs
+	 * @param bReplace the replace flag
+	 * 
+	 * @return the schedule result
+	 */
+	private static SchedulerHelper.ScheduleResult submit( Scheduler scheduler, Prepared[] prepared, boolean bReplace ) {
+		Map< JobDetail, Set< ? extends Trigger > > jobs = toJobs( prepared );
+		if( !jobs.isEmpty( ) ) {
+			try {
+				scheduler.scheduleJobs( jobs, bReplace );
+			}
+			catch( SchedulerException e ) {
+				LOG.error( e.getMessage( ), e );
+				for( Prepared p : prepared ) {
+					if( p.error == null ) {
+						p.error = e;
+					}
+				}
+			}
+		}
+		SchedulerHelper.ScheduleResult result = new SchedulerHelper.ScheduleResult( prepared.length );
+		for( int i = 0; i < prepared.length; i++ ) {
+			Prepared p = prepared[ i ];
+			if( p.error == null ) {
+				p.tmp.setJobDetail( p.jobDetail );
+				result.add( p.trigger.getKey( ) );
+				LOG.debug( p.tmp.getName( ) + " is scheduled successfully. Schedule: " + p.tmp.getCronExp( ) );
+			} else {
+				result.addFailure( i, p.error );
+				LOG.warn( p.tmp.getName( ) + " is not scheduled: " + p.error.getMessage( ) );
+			}
+		}
+		LOG.info( 
+			( prepared.length - result.getFailures( ).size( ) ) + " jobs are scheduled successfully, " + 
+			result.getFailures( ).size( ) + " failed" 
+		);
+		return( result );
+	}
+
+	/**
+	 * Returns jobs with their triggers of the valid prepared jobs
+	 * 
+	 * @param prepared the prepared jobs
+	 * 
+	 * @return the jobs map in the templates order
+	 */
+	private static Map< JobDetail, Set< ? extends Trigger > > toJobs( Prepared[] prepared ) {
+		Map< JobDetail, Set< ? extends Trigger > > jobs = new LinkedHashMap< >( prepared.length * 4 / 3 + 1 );
+		for( Prepared p : prepared ) {
+			if( p.error == null ) {
+				jobs.put( p.jobDetail, Collections.singleton( p.trigger ) );
+			}
+		}
+		return( jobs );
+	}
+
+	/**
+	 * Returns quartz default properties with {@link CompactRAMJobStore} as the job store
+	 * 
+	 * @return the properties
+	 * 
+	 * @throws SchedulerException
+	 */
+	static Properties getDefaultProperties( ) throws SchedulerException {
+		Properties props = new Properties( );
+		loadDefaults( props );
+		props.put( StdSchedulerFactory.PROP_JOB_STORE_CLASS, CompactRAMJobStore.class.getName( ) );
+		return( props );
+	}
+
+	/**
+	 * Returns properties which {@link StdSchedulerFactory#initialize()} would use:
+	 * the file named by the {@code org.quartz.properties} system property or
+	 * {@code quartz.properties} in the working directory, then in the class
+	 * path, then the quartz defaults, overridden by the system properties.
+	 * {@link CompactRAMJobStore} is set as the job store unless it is
+	 * configured by the application.
+	 * 
+	 * @return the properties
+	 * 
+	 * @throws SchedulerException
+	 */
+	static Properties getApplicationProperties( ) throws SchedulerException {
+		String sRequested = System.getProperty( StdSchedulerFactory.PROPERTIES_FILE );
+		String sFile = sRequested != null ? sRequested : "quartz.properties";
+		Properties props = new Properties( );
+		try {
+			if( new File( sFile ).exists( ) ) {
+				try( InputStream is = new BufferedInputStream( new FileInputStream( sFile ) ) ) {
+					props.load( is );
+				}
+			} else if( sRequested != null ) {
+				if( !load( props, Thread.currentThread( ).getContextClassLoader( ), sRequested ) ) {
+					throw new SchedulerException( "Properties file: '" + sRequested + "' could not be found." );
+				}
+			} else {
+				ClassLoader loader = StdSchedulerFactory.class.getClassLoader( );
+				if( loader == null ) {
+					loader = Thread.currentThread( ).getContextClassLoader( );
+				}
+				if( !load( props, loader, "quartz.properties" ) && !load( props, loader, "/quartz.properties" ) ) {
+					loadDefaults( props );
+					// the plain RAM job store of the quartz defaults is not the application choice
+					props.remove( StdSchedulerFactory.PROP_JOB_STORE_CLASS );
+				}
+			}
+		}
+		catch( IOException e ) {
+			throw new SchedulerException( "Properties file: '" + sFile + "' could not be read.", e );
+		}
+		props.putAll( System.getProperties( ) );
+		props.putIfAbsent( StdSchedulerFactory.PROP_JOB_STORE_CLASS, CompactRAMJobStore.class.getName( ) );
+		return( props );
+	}
+
+	/**
+	 * Loads quartz default properties
+	 * 
+	 * @param props the properties to load into
+	 * 
+	 * @throws SchedulerException
+	 */
+	private static void loadDefaults( Properties props ) throws SchedulerException {
+		try {
+			load( props, StdSchedulerFactory.class.getClassLoader( ), "org/quartz/quartz.properties" );
+		}
+		catch( IOException e ) {
+			throw new SchedulerException( e.getMessage( ), e );
+		}
+		props.putIfAbsent( StdSchedulerFactory.PROP_SCHED_INSTANCE_NAME, "DefaultQuartzScheduler" );
+		props.putIfAbsent( StdSchedulerFactory.PROP_THREAD_POOL_CLASS, "org.quartz.simpl.SimpleThreadPool" );
+		props.putIfAbsent( "org.quartz.threadPool.threadCount", "10" );
+	}
+
+	/**
+	 * Loads properties from the class path resource
+	 * 
+	 * @param props the properties to load into
+	 * @param loader the class loader, may be null
+	 * @param sResource the resource name
+	 * 
+	 * @return false if the resource is not found
+	 * 
+	 * @throws IOException
+	 */
+	private static boolean load( Properties props, ClassLoader loader, String sResource ) throws IOException {
+		if( loader == null ) {
+			return( false );
+		}
+		try( InputStream is = loader.getResourceAsStream( sResource ) ) {
+			if( is == null ) {
+				return( false );
+			}
+			props.load( new BufferedInputStream( is ) );
+			return( true );
+		}
+	}
+
+	/**
+	 * Adds listener which unschedules completed triggers
+	 * 
+	 * @param scheduler the scheduler
+	 * @param config the properties the scheduler is created with
+	 * 
+	 * @throws SchedulerException
+	 */
+	static void addTriggerListener( Scheduler scheduler, Properties config ) throws SchedulerException {
+		// quartz sets the store property like Boolean.valueOf does, the store default is true
+		String sRemove = config.getProperty( StdSchedulerFactory.PROP_JOB_STORE_PREFIX + ".removeCompletedTriggers" );
+		boolean bStoreRemovesCompleted = CompactRAMJobStore.class.isAssignableFrom(
+			scheduler.getMetaData( ).getJobStoreClass( )
+		) && ( sRemove == null || Boolean.parseBoolean( sRemove.trim( ) ) );
+		scheduler.getListenerManager( ).addTriggerListener( new TriggerListener( bStoreRemovesCompleted ) );
+	}
+
+	/**
+	 * Generates job key, all jobs share one group
+	 * 
+	 * @return the job key
+	 */
+	private static JobKey generateJobKey( ) {
+		return( JobKey.jobKey( IdCodec.toBase62( IdGenerator.uuid7( ) ), SchedulerHelper.JOB_GROUP ) );
+	}
+	
+	/**
+	 * Generates trigger key, all triggers share one group
+	 * 
+	 * @return the trigger key
+	 */
+	private static TriggerKey generateTriggerKey( ) {
+		return( TriggerKey.triggerKey( IdCodec.toBase62( IdGenerator.uuid7( ) ), SchedulerHelper.TRIGGER_GROUP ) ); 
+	}
+	
+	/**
+	 * Job and trigger built from the template or the build failure
+	 */
+	private static class Prepared {
+		private final JobTemplate tmp;
+		private JobDetail jobDetail;
+		private Trigger trigger;
+		private Exception error;
+
+		public Prepared( JobTemplate tmp ) {
+			this.tmp = tmp;
+			try {
+				trigger = createTrigger( tmp );
+				if( trigger.getFireTimeAfter( null ) == null ) {
+					throw new SchedulerException( 
+						"Based on configured schedule, the given trigger will never fire: " + tmp.getCronExp( ) 
+					);
+				}
+				jobDetail = createJob( tmp );
+			}
+			catch( Exception e ) {
+				error = e;
+			}
+		}
+	}
+
+	private static class TriggerListener extends TriggerListenerSupport {
+		private final boolean bStoreRemovesCompleted;
+
+		/**
+		 * @param bStoreRemovesCompleted true if the job store removes completed triggers itself
+		 */
+		public TriggerListener( boolean bStoreRemovesCompleted ) {
+			this.bStoreRemovesCompleted = bStoreRemovesCompleted;
+		}
+
+		/**
+		 * @see org.quartz.TriggerListener#getName()
+		 */
+		@Override
+		public String getName( ) {
+			return( "xxx" );
+		}
+
+		/**
+		 * @see org.quartz.listeners.TriggerListenerSupport#triggerFired(org.quartz.Trigger, org.quartz.JobExecutionContext)
+		 */
+		@Override
+		public void triggerFired( Trigger trigger, JobExecutionContext context ) {
+			LOG.debug( context.getJobDetail( ).getJobDataMap( ).get( "name" ) + " is fired" );
+		}
+
+		/**
+		 * @see org.quartz.listeners.TriggerListenerSupport#triggerComplete(org.quartz.Trigger, org.quartz.JobExecutionContext, org.quartz.Trigger.CompletedExecutionInstruction)
+		 */
+	    @Override
+		public void triggerComplete( 
+			Trigger trigger,
+			JobExecutionContext context,
+			CompletedExecutionInstruction triggerInstructionCode 
+		) {
+			try {
+				if( triggerInstructionCode == CompletedExecutionInstruction.SET_TRIGGER_COMPLETE ) {
+					LOG.info( context.getJobDetail( ).getJobDataMap( ).get( "name" ) + ": is unscheduled" );
+					if( !bStoreRemovesCompleted ) {
+						// the compact store removes completed trigger itself
+						context.getScheduler( ).unscheduleJob( trigger.getKey( ) );
+					}
+				}
+			} 
+			catch( Exception e ) {
+				LOG.error( e.getMessage( ), e );
+			}
+		}
+	}
+}
@@ -0,0 +1,306 @@
+/*
+ * Copyright 2026 Mikhail Khodonov.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.homedns.mkh.util.scheduler;
+
+import java.util.List;
+import java.util.Properties;
+import org.apache.log4j.Logger;
+import org.quartz.JobKey;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.quartz.TriggerKey;
+import org.quartz.impl.SchedulerRepository;
+import org.quartz.impl.StdSchedulerFactory;
+
+/**
+ * Independently configured scheduler with the {@link SchedulerHelper}
+ * operations. Configuration is set before the first use, the quartz scheduler
+ * is created and started lazily on the first call which needs it. Every
+ * service must have its own name, schedulers with different names share
+ * nothing. Unless overridden by {@link #setProperty(String, String)} the
+ * quartz defaults are used with {@link CompactRAMJobStore} as the job store.
+ *
+ */
+public class SchedulerService implements AutoCloseable {
+	private static final Logger LOG = Logger.getLogger( SchedulerService.class );
+
+	private final String sName;
+	private final Properties props = new Properties( );
+	private final SchedulerMetrics metrics = new SchedulerMetrics( );
+	private boolean bAutoStart = true;
+	private volatile Scheduler scheduler;
+
+	/**
+	 * @param sName the unique scheduler name
+	 */
+	public SchedulerService( String sName ) {
+		this.sName = sName;
+	}
+
+	/**
+	 * Sets number of job worker threads
+	 *
+	 * @param iThreadCount the number of threads
+	 *
+	 * @return this service
+	 */
+	public SchedulerService setThreadCount( int iThreadCount ) {
+		if( iThreadCount < 1 ) {
+			throw new IllegalArgumentException( "Invalid thread count: " + iThreadCount );
+		}
+		return( setProperty( "org.quartz.threadPool.threadCount", String.valueOf( iThreadCount ) ) );
+	}
+
+	/**
+	 * Sets time after which a late trigger is considered misfired
+	 *
+	 * @param lThreshold the misfire threshold, ms
+	 *
+	 * @return this service
+	 */
+	public SchedulerService setMisfireThreshold( long lThreshold ) {
+		return( setProperty( StdSchedulerFactory.PROP_JOB_STORE_PREFIX + ".misfireThreshold", String.valueOf( lThreshold ) ) );
+	}
+
+	/**
+	 * Sets batch trigger acquisition, the scheduler thread acquires up to
+	 * the batch size triggers which fire within the time window at once
+	 *
+	 * @param iMaxBatchSize the maximum number of triggers acquired at once,
+	 * should not exceed the thread count
+	 * @param lTimeWindow the fire ahead time window, ms
+	 *
+	 * @return this service
+	 */
+	public SchedulerService setBatchAcquisition( int iMaxBatchSize, long lTimeWindow ) {
+		if( iMaxBatchSize < 1 ) {
+			throw new IllegalArgumentException( "Invalid batch size: " + iMaxBatchSize );
+		}
+		setProperty( StdSchedulerFactory.PROP_SCHED_MAX_BATCH_SIZE, String.valueOf( iMaxBatchSize ) );
+		return( setProperty( StdSchedulerFactory.PROP_SCHED_BATCH_TIME_WINDOW, String.valueOf( lTimeWindow ) ) );
+	}
+
+	/**
+	 * Sets whether scheduler and worker threads are daemons
+	 *
+	 * @param bDaemon the daemon flag
+	 *
+	 * @return this service
+	 */
+	public SchedulerService setDaemon( boolean bDaemon ) {
+		setProperty( StdSchedulerFactory.PROP_SCHED_MAKE_SCHEDULER_THREAD_DAEMON, String.valueOf( bDaemon ) );
+		return( setProperty( "org.quartz.threadPool.makeThreadsDaemons", String.valueOf( bDaemon ) ) );
+	}
+
+	/**
+	 * Sets whether scheduler is started when it is created, otherwise it
+	 * accepts jobs but does not fire them until {@link #start()}
+	 *
+	 * @param bAutoStart the auto start flag, true by default
+	 *
+	 * @return this service
+	 */
+	public synchronized SchedulerService setAutoStart( boolean bAutoStart ) {
+		this.bAutoStart = bAutoStart;
+		return( this );
+	}
+
+	/**
+	 * Sets any quartz property, e.g. the thread pool or job store class
+	 *
+	 * @param sKey the property key
+	 * @param sValue the property value
+	 *
+	 * @return this service
+	 */
+	public synchronized SchedulerService setProperty( String sKey, String sValue ) {
+		if( scheduler != null ) {
+			throw new IllegalStateException( sName + " scheduler is already created" );
+		}
+		props.setProperty( sKey, sValue );
+		return( this );
+	}
+
+	/**
+	 * Returns scheduler name
+	 *
+	 * @return the name
+	 */
+	public String getName( ) {
+		return( sName );
+	}
+
+	/**
+	 * Returns true if the quartz scheduler is created
+	 *
+	 * @return true if created
+	 */
+	public boolean isCreated( ) {
+		return( scheduler != null );
+	}
+
+	/**
+	 * Returns quartz scheduler, creates it on the first call
+	 *
+	 * @return the scheduler
+	 *
+	 * @throws SchedulerException
+	 */
+	public Scheduler getScheduler( ) throws SchedulerException {
+		Scheduler s = scheduler;
+		if( s == null ) {
+			synchronized( this ) {
+				s = scheduler;
+				if( s == null ) {
+					s = create( );
+					scheduler = s;
+				}
+			}
+		}
+		return( s );
+	}
+
+	/**
+	 * Returns job execution metrics of this scheduler
+	 *
+	 * @return the metrics
+	 */
+	public SchedulerMetrics getMetrics( ) {
+		return( metrics );
+	}
+
+	/**
+	 * Starts scheduler, creates it if needed
+	 *
+	 * @throws SchedulerException
+	 */
+	public void start( ) throws SchedulerException {
+		getScheduler( ).start( );
+	}
+
+	/**
+	 * @see SchedulerHelper#scheduleJobs(List)
+	 */
+	public List< TriggerKey > scheduleJobs( List< JobTemplate > jobTmps ) throws SchedulerException {
+		return( SchedulerOps.scheduleJobs( getScheduler( ), jobTmps ) );
+	}
+
+	/**
+	 * Schedules jobs in one scheduler call, template failures are reported in the result
+	 * 
+	 * @param jobTmps the job templates list
+	 * @param bReplace if true existing jobs and triggers with the same keys are replaced
+	 * 
+	 * @return the schedule result
+	 * 
+	 * @throws SchedulerException if the scheduler cannot be created, unlike
+	 *         the {@link SchedulerHelper} method whose scheduler is created on
+	 *         the class load
+	 * 
+	 * @see SchedulerHelper#scheduleJobs(List, boolean)
+	 */
+	public SchedulerHelper.ScheduleResult scheduleJobs( List< JobTemplate > jobTmps, boolean bReplace ) throws SchedulerException {
+		return( SchedulerOps.scheduleJobs( getScheduler( ), jobTmps, bReplace ) );
+	}
+
+	/**
+	 * @see SchedulerHelper#scheduleJob(JobTemplate)
+	 */
+	public TriggerKey scheduleJob( JobTemplate jobTmp ) throws SchedulerException {
+		return( SchedulerOps.scheduleJob( getScheduler( ), jobTmp ) );
+	}
+
+	/**
+	 * @see SchedulerHelper#unscheduleJob(TriggerKey)
+	 */
+	public void unscheduleJob( TriggerKey triggerKey ) throws SchedulerException {
+		getScheduler( ).unscheduleJob( triggerKey );
+	}
+
+	/**
+	 * @see SchedulerHelper#addJobs(List)
+	 */
+	public List< JobKey > addJobs( List< JobTemplate > jobTmps ) throws SchedulerException {
+		return( SchedulerOps.addJobs( getScheduler( ), jobTmps ) );
+	}
+
+	/**
+	 * @see SchedulerHelper#addJob(JobTemplate)
+	 */
+	public JobKey addJob( JobTemplate jobTmp ) throws SchedulerException {
+		return( SchedulerOps.addJob( getScheduler( ), jobTmp ) );
+	}
+
+	/**
+	 * Shuts scheduler down
+	 *
+	 * @param bWaitForJobs if true waits for running jobs to complete
+	 *
+	 * @throws SchedulerException
+	 */
+	public synchronized void shutdown( boolean bWaitForJobs ) throws SchedulerException {
+		if( scheduler != null ) {
+			scheduler.shutdown( bWaitForJobs );
+		}
+	}
+
+	/**
+	 * Shuts scheduler down waiting for running jobs
+	 *
+	 * @see java.lang.AutoCloseable#close()
+	 */
+	@Override
+	public void close( ) throws SchedulerException {
+		shutdown( true );
+	}
+
+	/**
+	 * Creates quartz scheduler
+	 *
+	 * @return the scheduler
+	 *
+	 * @throws SchedulerException
+	 */
+	private Scheduler create( ) throws SchedulerException {
+		if( SchedulerRepository.getInstance( ).lookup( sName ) != null ) {
+			throw new SchedulerException( "Scheduler already exists: " + sName );
+		}
+		Properties config = SchedulerOps.getDefaultProperties( );
+		config.putAll( props );
+		config.setProperty( StdSchedulerFactory.PROP_SCHED_INSTANCE_NAME, sName );
+		Scheduler s = new StdSchedulerFactory( config ).getScheduler( );
+		try {
+			SchedulerOps.addTriggerListener( s, config );
+			metrics.register( s );
+			if( bAutoStart ) {
+				s.start( );
+			}
+		}
+		catch( SchedulerException | RuntimeException e ) {
+			// removes the half built scheduler from the repository, so the next call can retry
+			try {
+				s.shutdown( false );
+			}
+			catch( SchedulerException e1 ) {
+				LOG.error( e1.getMessage( ), e1 );
+			}
+			throw e;
+		}
+		LOG.info( sName + " scheduler is created" );
+		return( s );
+	}
+}
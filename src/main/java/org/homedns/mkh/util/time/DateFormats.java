@@ -0,0 +1,264 @@
+/*
+ * Copyright 2026 Mikhail Khodonov.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.homedns.mkh.util.time;
+
+import java.text.DateFormat;
+import java.time.ZoneId;
+import java.time.chrono.Chronology;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DecimalStyle;
+import java.time.format.FormatStyle;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Thread safe localized date/time formatting with the same output as
+ * {@link DateFormat#getDateTimeInstance(int, int, Locale)}. Formatters are
+ * cached per locale, style and time zone and kept per thread, formatted
+ * current time is cached per second. The JVM default time zone is taken on
+ * every call.
+ *
+ */
+public class DateFormats {
+	private static final Map< Key, Formatter > FORMATTERS = new ConcurrentHashMap< >( );
+	private static volatile Formatter shortFormatter;
+
+	private DateFormats( ) {
+	}
+
+	/**
+	 * Returns current local date/time in short format for the default locale
+	 *
+	 * @return the current date/time
+	 */
+	public static String now( ) {
+		Locale locale = Locale.getDefault( Locale.Category.FORMAT );
+		ZoneId zone = ZoneId.systemDefault( );
+		Formatter formatter = shortFormatter;
+		if( formatter == null || !formatter.locale.equals( locale ) || !formatter.zone.equals( zone ) ) {
+			formatter = getFormatter( FormatStyle.SHORT, FormatStyle.SHORT, locale, zone );
+			shortFormatter = formatter;
+		}
+		return( formatter.now( System.currentTimeMillis( ) ) );
+	}
+
+	/**
+	 * Returns current local date/time in the specified format, the string is
+	 * formatted at most once per second
+	 *
+	 * @param dateStyle the date style
+	 * @param timeStyle the time style
+	 * @param locale the locale
+	 *
+	 * @return the current date/time
+	 */
+	public static String now( FormatStyle dateStyle, FormatStyle timeStyle, Locale locale ) {
+		return( getFormatter( dateStyle, timeStyle, locale ).now( System.currentTimeMillis( ) ) );
+	}
+
+	/**
+	 * Appends current local date/time in short format for the default locale
+	 *
+	 * @param sb the target string builder
+	 *
+	 * @return the target string builder
+	 */
+	public static StringBuilder now( StringBuilder sb ) {
+		return( sb.append( now( ) ) );
+	}
+
+	/**
+	 * Formats specified time
+	 *
+	 * @param lMillis the epoch millis
+	 * @param dateStyle the date style
+	 * @param timeStyle the time style
+	 * @param locale the locale
+	 *
+	 * @return the formatted date/time
+	 */
+	public static String format( long lMillis, FormatStyle dateStyle, FormatStyle timeStyle, Locale locale ) {
+		return( getFormatter( dateStyle, timeStyle, locale ).format( lMillis ) );
+	}
+
+	/**
+	 * Appends specified formatted time to the string builder
+	 *
+	 * @param sb the target string builder
+	 * @param lMillis the epoch millis
+	 * @param dateStyle the date style
+	 * @param timeStyle the time style
+	 * @param locale the locale
+	 *
+	 * @return the target string builder
+	 */
+	public static StringBuilder format( StringBuilder sb, long lMillis, FormatStyle dateStyle, FormatStyle timeStyle, Locale locale ) {
+		return( sb.append( getFormatter( dateStyle, timeStyle, locale ).format( lMillis ) ) );
+	}
+
+	/**
+	 * Returns immutable localized formatter in the default time zone with the
+	 * locale chronology and digits. Its patterns come from java.time and may
+	 * differ from the {@link DateFormat} ones, e.g. java.text uses the
+	 * buddhist calendar for th_TH.
+	 *
+	 * @param dateStyle the date style
+	 * @param timeStyle the time style
+	 * @param locale the locale
+	 *
+	 * @return the formatter
+	 */
+	public static DateTimeFormatter getDateTimeFormatter( FormatStyle dateStyle, FormatStyle timeStyle, Locale locale ) {
+		return( getFormatter( dateStyle, timeStyle, locale ).formatter );
+	}
+
+	private static Formatter getFormatter( FormatStyle dateStyle, FormatStyle timeStyle, Locale locale ) {
+		return( getFormatter( dateStyle, timeStyle, locale, ZoneId.systemDefault( ) ) );
+	}
+
+	private static Formatter getFormatter( FormatStyle dateStyle, FormatStyle timeStyle, Locale locale, ZoneId zone ) {
+		Key key = new Key( dateStyle, timeStyle, locale, zone );
+		Formatter formatter = FORMATTERS.get( key );
+		if( formatter == null ) {
+			formatter = new Formatter( dateStyle, timeStyle, locale, zone );
+			FORMATTERS.put( key, formatter );
+		}
+		return( formatter );
+	}
+
+	/**
+	 * Formatter with the last formatted second
+	 */
+	private static class Formatter {
+		private final DateTimeFormatter formatter;
+		private final Locale locale;
+		private final ZoneId zone;
+		private final ThreadLocal< DateFormat > format;
+		private volatile Second last = new Second( Long.MIN_VALUE, null );
+
+		/**
+		 * @param dateStyle the date style
+		 * @param timeStyle the time style
+		 * @param locale the locale
+		 * @param zone the time zone
+		 */
+		public Formatter( FormatStyle dateStyle, FormatStyle timeStyle, Locale locale, ZoneId zone ) {
+			this.locale = locale;
+			this.zone = zone;
+			formatter = DateTimeFormatter
+				.ofLocalizedDateTime( dateStyle, timeStyle )
+				.withLocale( locale )
+				.withChronology( Chronology.ofLocale( locale ) )
+				.withDecimalStyle( DecimalStyle.of( locale ) )
+				.withZone( zone );
+			// FormatStyle constants are in the DateFormat style order
+			DateFormat prototype = DateFormat.getDateTimeInstance( dateStyle.ordinal( ), timeStyle.ordinal( ), locale );
+			prototype.setTimeZone( TimeZone.getTimeZone( zone ) );
+			format = ThreadLocal.withInitial( ( ) -> ( DateFormat )prototype.clone( ) );
+		}
+
+		/**
+		 * Returns formatted specified time
+		 *
+		 * @param lMillis the epoch millis
+		 *
+		 * @return the formatted date/time
+		 */
+		public String format( long lMillis ) {
+			return( format.get( ).format( new Date( lMillis ) ) );
+		}
+
+		/**
+		 * Returns formatted specified time, reuses the string formatted within the same second
+		 *
+		 * @param lMillis the epoch millis
+		 *
+		 * @return the formatted date/time
+		 */
+		public String now( long lMillis ) {
+			long lSecond = Math.floorDiv( lMillis, 1000L );
+			Second s = last;
+			if( s.lSecond != lSecond ) {
+				s = new Second( lSecond, format( lSecond * 1000L ) );
+				last = s;
+			}
+			return( s.sText );
+		}
+	}
+
+	/**
+	 * Formatted second
+	 */
+	private static class Second {
+		private final long lSecond;
+		private final String sText;
+
+		public Second( long lSecond, String sText ) {
+			this.lSecond = lSecond;
+			this.sText = sText;
+		}
+	}
+
+	/**
+	 * Formatter cache key
+	 */
+	private static class Key {
+		private final FormatStyle dateStyle;
+		private final FormatStyle timeStyle;
+		private final Locale locale;
+		private final ZoneId zone;
+
+		public Key( FormatStyle dateStyle, FormatStyle timeStyle, Locale locale, ZoneId zone ) {
+			this.dateStyle = dateStyle;
+			this.timeStyle = timeStyle;
+			this.locale = locale;
+			this.zone = zone;
+		}
+
+		/**
+		 * @see java.lang.Object#hashCode()
+		 */
+		@Override
+		public int hashCode( ) {
+			return( Objects.hash( dateStyle, timeStyle, locale, zone ) );
+		}
+
+		/**
+		 * @see java.lang.Object#equals(java.lang.Object)
+		 */
+		@Override
+		public boolean equals( Object obj ) {
+			if( this == obj ) {
+				return( true );
+			}
+			if( !( obj instanceof Key ) ) {
+				return( false );
+			}
+			Key other = ( Key )obj;
+			return(
+				dateStyle == other.dateStyle
+				&& timeStyle == other.timeStyle
+				&& locale.equals( other.locale )
+				&& zone.equals( other.zone )
+			);
+		}
+	}
+}
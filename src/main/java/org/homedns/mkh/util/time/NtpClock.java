@@ -0,0 +1,325 @@
+/*
+ * Copyright 2026 Mikhail Khodonov.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.homedns.mkh.util.time;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.sql.Timestamp;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.net.ntp.NTPUDPClient;
+import org.apache.commons.net.ntp.TimeInfo;
+import org.apache.log4j.Logger;
+
+/**
+ * Clock synchronized with the ntp server in background. Every sync takes
+ * several samples, keeps the one with the lowest round trip delay and blends
+ * it into the smoothed offset estimate, the local clock drift is estimated
+ * from successive syncs. Reads never do I/O, until the first successful sync
+ * or after the estimate gets stale the local machine time is returned.
+ *
+ */
+public class NtpClock implements AutoCloseable {
+	private static final Logger LOG = Logger.getLogger( NtpClock.class );
+	private static final Map< String, NtpClock > CLOCKS = new ConcurrentHashMap< >( );
+
+	public static final int DEFAULT_TIMEOUT = 5000;
+	public static final long DEFAULT_SYNC_INTERVAL = TimeUnit.MINUTES.toMillis( 10 );
+	public static final int DEFAULT_SAMPLES = 4;
+	/**
+	 * Weight of the new sample in the smoothed offset
+	 */
+	private static final double SMOOTHING = 0.25;
+	/**
+	 * Drift estimate is clamped to 500 ppm, real clocks never drift more
+	 */
+	private static final double MAX_DRIFT = 500e-6;
+
+	private final String sHost;
+	private final int iPort;
+	private final int iTimeout;
+	private final int iSamples;
+	private final long lSyncInterval;
+	private final long lMaxAge;
+	private final ScheduledExecutorService executor;
+	// released when the first sync of the shared clock is done
+	private final CountDownLatch initialized = new CountDownLatch( 1 );
+	private volatile Estimate estimate;
+	private ScheduledFuture< ? > task;
+
+	/**
+	 * @param sHost the ntp server host
+	 */
+	public NtpClock( String sHost ) {
+		this( sHost, NTPUDPClient.DEFAULT_PORT, DEFAULT_TIMEOUT, DEFAULT_SAMPLES, DEFAULT_SYNC_INTERVAL );
+	}
+
+	/**
+	 * @param sHost the ntp server host
+	 * @param iPort the ntp server port
+	 * @param iTimeout the request timeout, ms
+	 * @param iSamples the number of samples per sync
+	 * @param lSyncInterval the interval between syncs, ms
+	 */
+	public NtpClock( String sHost, int iPort, int iTimeout, int iSamples, long lSyncInterval ) {
+		if( iSamples < 1 || lSyncInterval <= 0 ) {
+			throw new IllegalArgumentException( "Invalid samples number or sync interval" );
+		}
+		this.sHost = sHost;
+		this.iPort = iPort;
+		this.iTimeout = iTimeout;
+		this.iSamples = iSamples;
+		this.lSyncInterval = lSyncInterval;
+		// estimate survives a few failed syncs before falling back to the local time
+		lMaxAge = lSyncInterval * 4;
+		executor = Executors.newSingleThreadScheduledExecutor( r -> {
+			Thread thread = new Thread( r, "ntp-clock-" + sHost );
+			thread.setDaemon( true );
+			return( thread );
+		} );
+	}
+
+	/**
+	 * Returns shared started clock for the specified ntp server host. The first
+	 * call for the host takes one sample synchronously, concurrent callers
+	 * wait for it, the estimate is refined by the full sync in background.
+	 *
+	 * @param sHost the ntp server host
+	 *
+	 * @return the clock
+	 */
+	public static NtpClock getClock( String sHost ) {
+		NtpClock clock = CLOCKS.get( sHost );
+		if( clock == null ) {
+			NtpClock created = new NtpClock( sHost );
+			clock = CLOCKS.putIfAbsent( sHost, created );
+			if( clock == null ) {
+				// synced outside the map, so other hosts are not blocked
+				try {
+					created.sync( 1 );
+					created.start( true );
+				}
+				finally {
+					created.initialized.countDown( );
+				}
+				return( created );
+			}
+			// the executor thread is not started yet
+			created.executor.shutdown( );
+		}
+		try {
+			clock.initialized.await( );
+		}
+		catch( InterruptedException e ) {
+			Thread.currentThread( ).interrupt( );
+		}
+		return( clock );
+	}
+
+	/**
+	 * Starts background synchronization
+	 *
+	 * @param bSyncNow if true first sync is done immediately in background
+	 */
+	public synchronized void start( boolean bSyncNow ) {
+		if( task != null ) {
+			return;
+		}
+		task = executor.scheduleWithFixedDelay(
+			this::sync, bSyncNow ? 0 : lSyncInterval, lSyncInterval, TimeUnit.MILLISECONDS
+		);
+	}
+
+	/**
+	 * Synchronizes with the ntp server now, failures are logged and the previous estimate is kept
+	 *
+	 * @return true if sync succeeded
+	 */
+	public boolean sync( ) {
+		return( sync( iSamples ) );
+	}
+
+	/**
+	 * Synchronizes with the ntp server taking the specified number of samples
+	 *
+	 * @param iSampleCount the number of samples
+	 *
+	 * @return true if sync succeeded
+	 */
+	private boolean sync( int iSampleCount ) {
+		try {
+			long lSample = sample( iSampleCount );
+			long lNow = System.currentTimeMillis( );
+			Estimate prev = estimate;
+			Estimate next;
+			if( prev == null ) {
+				next = new Estimate( lSample, 0, lNow );
+			} else {
+				double dPredicted = prev.getOffset( lNow );
+				double dOffset = dPredicted + SMOOTHING * ( lSample - dPredicted );
+				double dDrift = prev.dDrift;
+				long lElapsed = lNow - prev.lSyncTime;
+				if( lElapsed > 0 ) {
+					double dObserved = ( lSample - prev.dOffset ) / lElapsed;
+					dDrift += SMOOTHING * ( dObserved - dDrift );
+					dDrift = Math.max( -MAX_DRIFT, Math.min( MAX_DRIFT, dDrift ) );
+				}
+				next = new Estimate( dOffset, dDrift, lNow );
+			}
+			estimate = next;
+			LOG.debug( "NTP server " + sHost + " offset " + lSample + " ms, estimate " + next.dOffset + " ms" );
+			return( true );
+		}
+		catch( Exception e ) {
+			LOG.warn( "NTP server " + sHost + " unreachable: " + e.getMessage( ) );
+			return( false );
+		}
+	}
+
+	/**
+	 * Returns current time corrected by the ntp offset estimate
+	 *
+	 * @return the time in milliseconds since epoch
+	 */
+	public long currentTimeMillis( ) {
+		long lNow = System.currentTimeMillis( );
+		Estimate e = estimate;
+		if( e == null || lNow - e.lSyncTime > lMaxAge ) {
+			return( lNow );
+		}
+		return( lNow + Math.round( e.getOffset( lNow ) ) );
+	}
+
+	/**
+	 * Returns current timestamp corrected by the ntp offset estimate
+	 *
+	 * @return the timestamp
+	 */
+	public Timestamp getTimestamp( ) {
+		return( new Timestamp( currentTimeMillis( ) ) );
+	}
+
+	/**
+	 * Returns true if clock has fresh ntp offset estimate
+	 *
+	 * @return true or false
+	 */
+	public boolean isSynchronized( ) {
+		Estimate e = estimate;
+		return( e != null && System.currentTimeMillis( ) - e.lSyncTime <= lMaxAge );
+	}
+
+	/**
+	 * Returns current offset estimate
+	 *
+	 * @return the offset, ms, or 0 if clock is not synchronized
+	 */
+	public long getOffset( ) {
+		return( currentTimeMillis( ) - System.currentTimeMillis( ) );
+	}
+
+	/**
+	 * Stops background synchronization
+	 *
+	 * @see java.lang.AutoCloseable#close()
+	 */
+	@Override
+	public void close( ) {
+		CLOCKS.remove( sHost, this );
+		executor.shutdownNow( );
+	}
+
+	/**
+	 * Takes samples and returns the offset of the one with the lowest delay
+	 *
+	 * @param iSampleCount the number of samples
+	 *
+	 * @return the offset, ms
+	 *
+	 * @throws IOException if no sample succeeded
+	 */
+	private long sample( int iSampleCount ) throws IOException {
+		NTPUDPClient client = new NTPUDPClient( );
+		client.setDefaultTimeout( iTimeout );
+		IOException failure = null;
+		Long best = null;
+		long lBestDelay = Long.MAX_VALUE;
+		try {
+			InetAddress address = InetAddress.getByName( sHost );
+			for( int i = 0; i < iSampleCount; i++ ) {
+				try {
+					TimeInfo info = client.getTime( address, iPort );
+					info.computeDetails( );
+					if( info.getOffset( ) == null ) {
+						continue;
+					}
+					long lDelay = info.getDelay( ) == null ? Long.MAX_VALUE - 1 : info.getDelay( );
+					if( lDelay < lBestDelay || best == null ) {
+						lBestDelay = lDelay;
+						best = info.getOffset( );
+					}
+				}
+				catch( IOException e ) {
+					failure = e;
+				}
+			}
+		}
+		finally {
+			client.close( );
+		}
+		if( best == null ) {
+			throw failure != null ? failure : new IOException( "No valid ntp response" );
+		}
+		return( best );
+	}
+
+	/**
+	 * Immutable offset estimate
+	 */
+	private static class Estimate {
+		private final double dOffset;
+		private final double dDrift;
+		private final long lSyncTime;
+
+		/**
+		 * @param dOffset the offset at sync time, ms
+		 * @param dDrift the offset change per local ms
+		 * @param lSyncTime the local sync time
+		 */
+		public Estimate( double dOffset, double dDrift, long lSyncTime ) {
+			this.dOffset = dOffset;
+			this.dDrift = dDrift;
+			this.lSyncTime = lSyncTime;
+		}
+
+		/**
+		 * Returns offset extrapolated to the specified local time
+		 *
+		 * @param lNow the local time
+		 *
+		 * @return the offset, ms
+		 */
+		public double getOffset( long lNow ) {
+			return( dOffset + dDrift * ( lNow - lSyncTime ) );
+		}
+	}
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2026 Mikhail Khodonov.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.homedns.mkh.util.time;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Timestamp factory working with the epoch arithmetic only. Returned
+ * timestamps carry wall clock of the requested zone expressed in the JVM
+ * default time zone, the same as {@code Timestamp.valueOf( "uuuu-MM-dd HH:mm:ss.n" )}
+ * of the formatted zone date/time does, but without the string round trip.
+ * The JVM default time zone is taken on every call.
+ *
+ */
+public class Timestamps {
+	private static final Map< String, ZoneRules > RULES = new ConcurrentHashMap< >( );
+	private static volatile Window window = new Window( null, 0, 0, 0 );
+
+	private Timestamps( ) {
+	}
+
+	/**
+	 * Returns UTC+0 timestamp with the best available clock precision
+	 *
+	 * @return the timestamp
+	 */
+	public static Timestamp utc( ) {
+		Instant now = Instant.now( );
+		return( fromWall( now.getEpochSecond( ), now.getNano( ) ) );
+	}
+
+	/**
+	 * Returns UTC+0 timestamp with millisecond precision, cheaper than {@link #utc()}
+	 *
+	 * @return the timestamp
+	 */
+	public static Timestamp utcMillis( ) {
+		return( fromWallMillis( System.currentTimeMillis( ) ) );
+	}
+
+	/**
+	 * Converts specified timestamp to the specified time zone wall clock
+	 *
+	 * @param timestamp the input timestamp
+	 * @param sTimeZone the time zone id, e.g. "Asia/Irkutsk"
+	 *
+	 * @return the timestamp
+	 */
+	public static Timestamp toZone( Timestamp timestamp, String sTimeZone ) {
+		ZoneRules rules = RULES.get( sTimeZone );
+		if( rules == null ) {
+			rules = ZoneId.of( sTimeZone ).getRules( );
+			RULES.put( sTimeZone, rules );
+		}
+		return( toZone( timestamp, rules ) );
+	}
+
+	/**
+	 * Converts specified timestamp to the specified time zone wall clock
+	 *
+	 * @param timestamp the input timestamp
+	 * @param zone the time zone
+	 *
+	 * @return the timestamp
+	 */
+	public static Timestamp toZone( Timestamp timestamp, ZoneId zone ) {
+		return( toZone( timestamp, zone.getRules( ) ) );
+	}
+
+	/**
+	 * Converts timestamp using specified zone rules
+	 *
+	 * @param timestamp the input timestamp
+	 * @param rules the zone rules
+	 *
+	 * @return the timestamp
+	 */
+	private static Timestamp toZone( Timestamp timestamp, ZoneRules rules ) {
+		long lMillis = timestamp.getTime( );
+		long lSeconds = Math.floorDiv( lMillis, 1000L );
+		int iOffset = rules.isFixedOffset( )
+			? rules.getOffset( Instant.EPOCH ).getTotalSeconds( )
+			: rules.getOffset( Instant.ofEpochSecond( lSeconds ) ).getTotalSeconds( );
+		return( fromWall( lSeconds + iOffset, timestamp.getNanos( ) ) );
+	}
+
+	/**
+	 * Builds timestamp whose default zone wall clock equals the specified wall clock
+	 *
+	 * @param lWallSeconds the wall clock as epoch seconds
+	 * @param iNanos the nanoseconds
+	 *
+	 * @return the timestamp
+	 */
+	private static Timestamp fromWall( long lWallSeconds, int iNanos ) {
+		Timestamp timestamp = new Timestamp( shift( lWallSeconds * 1000L ) + iNanos / 1000000 );
+		timestamp.setNanos( iNanos );
+		return( timestamp );
+	}
+
+	/**
+	 * Builds timestamp whose default zone wall clock equals the specified wall clock
+	 *
+	 * @param lWallMillis the wall clock as epoch milliseconds
+	 *
+	 * @return the timestamp
+	 */
+	private static Timestamp fromWallMillis( long lWallMillis ) {
+		return( new Timestamp( shift( lWallMillis ) ) );
+	}
+
+	/**
+	 * Returns epoch millis of the instant which has specified wall clock in the
+	 * default zone. Wall clock in the transition gap is moved forward and in the
+	 * overlap the later instant is taken like {@link Timestamp#valueOf(String)} does.
+	 *
+	 * @param lWallMillis the wall clock as epoch milliseconds
+	 *
+	 * @return the epoch millis
+	 */
+	private static long shift( long lWallMillis ) {
+		ZoneId zone = ZoneId.systemDefault( );
+		Window w = window;
+		if( lWallMillis >= w.lFrom && lWallMillis < w.lTo && zone.equals( w.zone ) ) {
+			return( lWallMillis - w.lOffset );
+		}
+		ZoneRules rules = zone.getRules( );
+		LocalDateTime ldt = LocalDateTime.ofEpochSecond( Math.floorDiv( lWallMillis, 1000L ), 0, ZoneOffset.UTC );
+		ZoneOffsetTransition transition = rules.getTransition( ldt );
+		if( transition != null ) {
+			// not cached, gap is resolved with the offset before and overlap with the offset after
+			ZoneOffset offset = transition.isGap( ) ? transition.getOffsetBefore( ) : transition.getOffsetAfter( );
+			return( lWallMillis - offset.getTotalSeconds( ) * 1000L );
+		}
+		long lOffset = rules.getOffset( ldt ).getTotalSeconds( ) * 1000L;
+		long lResult = lWallMillis - lOffset;
+		// wall clocks between the previous and the next transitions are resolved with the same offset
+		Instant instant = Instant.ofEpochMilli( lResult );
+		ZoneOffsetTransition next = rules.nextTransition( instant );
+		ZoneOffsetTransition prev = rules.previousTransition( instant.plusMillis( 1 ) );
+		long lFrom = prev == null
+			? Long.MIN_VALUE
+			: prev.toEpochSecond( ) * 1000L + Math.max( prev.getOffsetBefore( ).getTotalSeconds( ) * 1000L, lOffset );
+		long lTo = next == null
+			? Long.MAX_VALUE
+			: next.toEpochSecond( ) * 1000L + Math.min( next.getOffsetAfter( ).getTotalSeconds( ) * 1000L, lOffset );
+		window = new Window( zone, lOffset, lFrom, lTo );
+		return( lResult );
+	}
+
+	/**
+	 * Range of wall clocks which are resolved with the same default zone offset
+	 */
+	private static class Window {
+		private final ZoneId zone;
+		private final long lOffset;
+		private final long lFrom;
+		private final long lTo;
+
+		/**
+		 * @param zone the default zone the window is computed for
+		 * @param lOffset the offset, ms
+		 * @param lFrom the wall clock range start, inclusive
+		 * @param lTo the wall clock range end, exclusive
+		 */
+		public Window( ZoneId zone, long lOffset, long lFrom, long lTo ) {
+			this.zone = zone;
+			this.lOffset = lOffset;
+			this.lFrom = lFrom;
+			this.lTo = lTo;
+		}
+	}
+}